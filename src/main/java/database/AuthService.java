@@ -4,19 +4,18 @@ import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
-import java.io.BufferedReader;
+import model.Employee;
+import model.LeaveBalance;
+import model.LeaveDecision;
+import model.LeaveEvent;
+import model.LeaveRequest;
+import model.Page;
+import model.PayrollEntry;
+
 import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 
 /**
  * AuthService - Business Logic Layer (Firebase Operations)
@@ -26,8 +25,8 @@ import java.nio.charset.StandardCharsets;
  * - Firestore Database (CRUD for users, payroll)
  *
  * Uses TWO different approaches:
- * 1. REST API - For login, signup, and Firestore operations (using HTTP
- * requests)
+ * 1. REST API - For login, signup, and Firestore operations (HTTP requests
+ * through the shared, pooled FirestoreClient)
  * 2. Admin SDK - For deleting users from Firebase Auth (requires
  * serviceAccountKey.json)
  *
@@ -58,8 +57,37 @@ public class AuthService {
     private static final String FIRESTORE_URL = "https://firestore.googleapis.com/v1/projects/" + PROJECT_ID
             + "/databases/(default)/documents";
 
+    // Optional shared HR mailbox for HR notifications (otherwise all HR users are BCC'd)
+    private static final String HR_DISTRIBUTION_ADDRESS = System.getProperty("hrm.mail.hrDistribution");
+
     // Track if Firebase Admin SDK has been initialized
-    private static boolean firebaseInitialized = false;
+    private static volatile boolean firebaseInitialized = false;
+
+    // Shared HTTP transport (pooled connections, timeouts) for every REST call
+    private final FirestoreClient http = FirestoreClient.getInstance();
+    private final EmployeeDirectory directory = EmployeeDirectory.getInstance();
+    private final EmailOutbox outbox = EmailOutbox.getInstance();
+    private final InvalidationBus invalidations = InvalidationBus.getInstance();
+    private final LeaveBalanceCache balances = LeaveBalanceCache.getInstance();
+
+    // Receives an event after each successful apply/approve/reject (set by the RMI layer)
+    private volatile java.util.function.Consumer<LeaveEvent> leaveEventSink = event -> {
+    };
+
+    // Full payroll listing: employees are resolved in one batchGet per this many entries
+    private static final int PAYROLL_PRELOAD_CHUNK = 100;
+
+    // Bulk leave decisions: at most this many employees are processed at once
+    // (hrm.leave.bulkParallelism, default 4)
+    private static final int BULK_PARALLELISM = Integer.getInteger("hrm.leave.bulkParallelism", 4);
+    private final java.util.concurrent.atomic.AtomicInteger bulkThreadCount =
+            new java.util.concurrent.atomic.AtomicInteger();
+    private final java.util.concurrent.ExecutorService bulkExecutor =
+            java.util.concurrent.Executors.newFixedThreadPool(BULK_PARALLELISM, r -> {
+                Thread t = new Thread(r, "leave-bulk-" + bulkThreadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
 
     // ==================== FIREBASE ADMIN SDK INITIALIZATION ====================
 
@@ -67,15 +95,13 @@ public class AuthService {
      * Initialize Firebase Admin SDK
      * Required for operations that need admin privileges (like deleting users)
      * Uses serviceAccountKey.json for authentication
+     * Called during server startup, and again (no-op once done) before admin operations
+     *
+     * @return true if the Admin SDK is ready
      */
-    /**
-     * Initialize Firebase Admin SDK
-     * Required for operations that need admin privileges (like deleting users)
-     * Uses serviceAccountKey.json for authentication
-     */
-    private void initFirebaseAdmin() {
+    public synchronized boolean initFirebaseAdmin() {
         if (firebaseInitialized)
-            return; // Only initialize once
+            return true; // Only initialize once
 
         try {
             // Check current directory first
@@ -109,7 +135,7 @@ public class AuthService {
                 System.out.println("3. Place it in THIS folder: " + new java.io.File(".").getAbsolutePath());
                 System.out
                         .println("==================================================================================");
-                return;
+                return false;
             }
 
             System.out.println("✓ Service account key found");
@@ -129,8 +155,10 @@ public class AuthService {
 
             firebaseInitialized = true;
             System.out.println("✓ Firebase Admin ready");
+            return true;
         } catch (java.io.IOException | IllegalStateException e) {
             System.out.println("✗ Firebase Admin SDK failed to initialize - check serviceAccountKey.json");
+            return false;
         }
     }
 
@@ -144,27 +172,19 @@ public class AuthService {
      */
     public String login(String email, String password) {
         try {
-            URL url = URI.create(AUTH_LOGIN_URL).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-
             JsonObject body = new JsonObject();
             body.addProperty("email", email);
             body.addProperty("password", password);
             body.addProperty("returnSecureToken", true);
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(body.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            FirestoreClient.Response res = http.post(AUTH_LOGIN_URL, body.toString());
 
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
+            if (res.getStatusCode() == 200) {
+                String response = res.getBody();
                 JsonObject json = JsonParser.parseString(response).getAsJsonObject();
                 return json.get("localId").getAsString();
             } else {
-                String error = readErrorResponse(conn);
+                String error = res.getBody();
                 String reason = parseFirebaseAuthError(error);
                 System.out.println("Login Failed [" + email + "]: " + reason);
                 return null;
@@ -201,30 +221,17 @@ public class AuthService {
 
     /**
      * Get user's role from Firestore
-     * Reads the "role" field from /users/{uid} document
+     * Reads the "role" field from /users/{uid} document (via EmployeeDirectory cache)
      * 
      * @return "hr" or "employee", null if not found
      */
     public String getRole(String uid) {
-        try {
-            URL url = URI.create(FIRESTORE_URL + "/users/" + uid).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                JsonObject fields = json.getAsJsonObject("fields");
-                if (fields != null && fields.has("role")) {
-                    return fields.getAsJsonObject("role").get("stringValue").getAsString();
-                }
-            }
-            return null;
-
-        } catch (Exception e) {
+        EmployeeDirectory.Entry user = directory.lookup(uid);
+        if (user == null) {
             System.out.println("✗ Failed to retrieve user role from database");
             return null;
         }
+        return user.getRole();
     }
 
     // ==================== EMPLOYEE CRUD METHODS ====================
@@ -241,35 +248,30 @@ public class AuthService {
             String role) {
         try {
             // Step 1: Create user in Firebase Auth
-            URL url = URI.create(AUTH_SIGNUP_URL).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-
             JsonObject body = new JsonObject();
             body.addProperty("email", email);
             body.addProperty("password", password);
             body.addProperty("returnSecureToken", true);
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(body.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            FirestoreClient.Response res = http.post(AUTH_SIGNUP_URL, body.toString());
 
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
+            if (res.getStatusCode() == 200) {
+                String response = res.getBody();
                 JsonObject json = JsonParser.parseString(response).getAsJsonObject();
                 String uid = json.get("localId").getAsString();
 
                 // Step 2: Add user data to Firestore
                 boolean firestoreSuccess = addUserToFirestore(uid, email, firstName, lastName, icPassport, role);
+                directory.invalidate(uid);
+                if (firestoreSuccess) {
+                    directory.updateHrMembership(uid, email, role);
+                }
 
                 // Step 3: Create Leave_Balance document for the new employee
                 boolean leaveBalanceSuccess = createLeaveBalance(uid);
 
                 if (firestoreSuccess && leaveBalanceSuccess) {
                     // Send welcome email to new employee
-                    EmailService emailService = new EmailService();
                     String subject = "Welcome to BHEL HRM System!";
                     String emailBody = "Dear " + firstName + " " + lastName + ",\n\n" +
                                  "Welcome to BHEL HR Management System!\n\n" +
@@ -298,16 +300,16 @@ public class AuthService {
                                  "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
                                  "This is an automated message. Please do not reply to this email.";
                     
-                    emailService.sendEmail(email, subject, emailBody);
+                    outbox.enqueue(email, subject, emailBody);
                     
-                    return "Employee added successfully! UID: " + uid + "\n✓ Welcome email sent to: " + email;
+                    return "Employee added successfully! UID: " + uid + "\n✓ Welcome email queued for: " + email;
                 } else if (firestoreSuccess) {
                     return "Employee created but Leave Balance creation failed. UID: " + uid;
                 } else {
                     return "Auth created but Firestore failed.";
                 }
             } else {
-                String error = readErrorResponse(conn);
+                String error = res.getBody();
 
                 // Parse error and show user-friendly message
                 if (error.contains("EMAIL_EXISTS")) {
@@ -333,12 +335,6 @@ public class AuthService {
     private boolean addUserToFirestore(String uid, String email, String firstName, String lastName, String icPassport,
             String role) {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/users?documentId=" + uid).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-
             JsonObject fields = new JsonObject();
             fields.add("email", stringValue(email));
             fields.add("first_name", stringValue(firstName));
@@ -347,13 +343,11 @@ public class AuthService {
             fields.add("role", stringValue(role));
 
             JsonObject doc = new JsonObject();
-            doc.add("fields", fields);
+            doc.add("fields", touch(fields));
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            FirestoreClient.Response res = http.post(FIRESTORE_URL + "/users?documentId=" + uid, doc.toString());
 
-            int code = conn.getResponseCode();
+            int code = res.getStatusCode();
             return code == 200 || code == 201;
 
         } catch (java.io.IOException e) {
@@ -380,12 +374,6 @@ public class AuthService {
             // Generate unique leave_balance_id
             String leaveBalanceId = "lb_" + userId.substring(0, Math.min(8, userId.length())) + "_" + currentYear;
 
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Balance?documentId=" + leaveBalanceId).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-
             JsonObject fields = new JsonObject();
             fields.add("leave_balance_id", stringValue(leaveBalanceId));
             fields.add("userid", stringValue(userId));
@@ -395,15 +383,16 @@ public class AuthService {
             fields.add("medical_leave", integerValue(10));     // Default 10 days
 
             JsonObject doc = new JsonObject();
-            doc.add("fields", fields);
+            doc.add("fields", touch(fields));
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            FirestoreClient.Response res = http.post(FIRESTORE_URL + "/Leave_Balance?documentId=" + leaveBalanceId,
+                    doc.toString());
 
-            int code = conn.getResponseCode();
+            int code = res.getStatusCode();
             if (code == 200 || code == 201) {
                 System.out.println("Leave Balance created for user: " + userId + " (Year: " + currentYear + ")");
+                balances.put(userId, JsonParser.parseString(res.getBody()).getAsJsonObject());
+                invalidations.publish("Leave_Balance", userId);
                 return true;
             } else {
                 System.out.println("✗ Failed to initialize leave balance for user: " + userId);
@@ -428,58 +417,26 @@ public class AuthService {
             String currentYear = String.valueOf(java.time.Year.now().getValue());
 
             // Get existing leave balance for this user
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Balance").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    boolean foundForUser = false;
-                    boolean needsReset = false;
-                    String existingLeaveBalanceId = null;
-
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String docUserId = getField(fields, "userid");
-                        if (userId.equals(docUserId)) {
-                            foundForUser = true;
-                            String docYear = getField(fields, "year");
-                            existingLeaveBalanceId = getField(fields, "leave_balance_id");
-
-                            // Check if year is different (new year)
-                            if (!currentYear.equals(docYear)) {
-                                needsReset = true;
-                            }
-                            break;
-                        }
-                    }
+            JsonObject balanceDoc = findLeaveBalanceDoc(userId);
 
-                    // If no leave balance exists, create one
-                    if (!foundForUser) {
-                        System.out.println("No Leave Balance found for user " + userId + ". Creating new one...");
-                        return createLeaveBalance(userId);
-                    }
+            // If no leave balance exists, create one
+            if (balanceDoc == null) {
+                System.out.println("No Leave Balance found for user " + userId + ". Creating new one...");
+                return createLeaveBalance(userId);
+            }
 
-                    // If year changed, reset the leave balance
-                    if (needsReset && existingLeaveBalanceId != null) {
-                        System.out.println("New year detected! Resetting leave balance for user " + userId);
-                        return resetLeaveBalance(userId, existingLeaveBalanceId, currentYear);
-                    }
+            JsonObject fields = balanceDoc.getAsJsonObject("fields");
+            String docYear = getField(fields, "year");
+            String existingLeaveBalanceId = getField(fields, "leave_balance_id");
 
-                    // No reset needed
-                    return true;
-                } else {
-                    // No documents at all, create new leave balance
-                    return createLeaveBalance(userId);
-                }
+            // If year changed (new year), reset the leave balance
+            if (!currentYear.equals(docYear)) {
+                System.out.println("New year detected! Resetting leave balance for user " + userId);
+                return resetLeaveBalance(userId, existingLeaveBalanceId, currentYear);
             }
-            return false;
+
+            // No reset needed
+            return true;
 
         } catch (Exception e) {
             System.out.println("Check Leave Balance Error: " + e.getMessage());
@@ -487,9 +444,32 @@ public class AuthService {
         }
     }
 
+    /**
+     * Reset every leave balance that is still from a previous year
+     * Run by the background scheduler so the first request of the year does
+     * not pay for it (checkAndResetLeaveBalance stays as a safety net)
+     *
+     * @return Number of balances reset
+     */
+    public int rolloverLeaveBalances() throws java.io.IOException {
+        String currentYear = String.valueOf(java.time.Year.now().getValue());
+        java.util.List<JsonObject> staleDocs = http.runQuery(FirestoreQuery.from("Leave_Balance")
+                .where("year", "NOT_EQUAL", stringValue(currentYear)));
+
+        int resetCount = 0;
+        for (JsonObject docObj : staleDocs) {
+            String userId = getField(docObj.getAsJsonObject("fields"), "userid");
+            if (resetLeaveBalance(userId, getDocumentId(docObj), currentYear)) {
+                resetCount++;
+            }
+        }
+        return resetCount;
+    }
+
     /**
      * Reset leave balance to default values for a new year
-     * Uses delete-and-recreate approach
+     * Updates the existing document in place (year + the three balances);
+     * the document keeps its original leave_balance_id
      *
      * @param userId          Employee's UID
      * @param leaveBalanceId  Existing leave balance ID
@@ -498,40 +478,19 @@ public class AuthService {
      */
     private boolean resetLeaveBalance(String userId, String leaveBalanceId, String newYear) {
         try {
-            // Delete the old leave balance document
-            URL deleteUrl = URI.create(FIRESTORE_URL + "/Leave_Balance/" + leaveBalanceId).toURL();
-            HttpURLConnection deleteConn = (HttpURLConnection) deleteUrl.openConnection();
-            deleteConn.setRequestMethod("DELETE");
-            deleteConn.getResponseCode(); // Execute delete
-
-            // Generate new leave_balance_id for the new year
-            String newLeaveBalanceId = "lb_" + userId.substring(0, Math.min(8, userId.length())) + "_" + newYear;
-
-            // Create new leave balance with reset values
-            URL createUrl = URI.create(FIRESTORE_URL + "/Leave_Balance?documentId=" + newLeaveBalanceId).toURL();
-            HttpURLConnection createConn = (HttpURLConnection) createUrl.openConnection();
-            createConn.setRequestMethod("POST");
-            createConn.setRequestProperty("Content-Type", "application/json");
-            createConn.setDoOutput(true);
-
             JsonObject fields = new JsonObject();
-            fields.add("leave_balance_id", stringValue(newLeaveBalanceId));
-            fields.add("userid", stringValue(userId));
             fields.add("year", stringValue(newYear));
             fields.add("annual_leave", integerValue(10));      // Reset to 10 days
             fields.add("emergency_leave", integerValue(10));   // Reset to 10 days
             fields.add("medical_leave", integerValue(10));     // Reset to 10 days
 
-            JsonObject doc = new JsonObject();
-            doc.add("fields", fields);
-
-            try (OutputStream os = createConn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            FirestoreClient.Response res = http.updateFields(
+                    FIRESTORE_URL + "/Leave_Balance/" + leaveBalanceId, touch(fields));
 
-            int code = createConn.getResponseCode();
-            if (code == 200 || code == 201) {
+            if (res.isSuccess()) {
                 System.out.println("Leave Balance reset for user: " + userId + " (Year: " + newYear + ")");
+                balances.put(userId, JsonParser.parseString(res.getBody()).getAsJsonObject());
+                invalidations.publish("Leave_Balance", userId);
                 return true;
             }
             return false;
@@ -554,50 +513,34 @@ public class AuthService {
             // First check and reset if needed (new year)
             checkAndResetLeaveBalance(userId);
 
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Balance").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String docUserId = getField(fields, "userid");
-                        if (userId.equals(docUserId)) {
-                            String leaveBalanceId = getField(fields, "leave_balance_id");
-                            String year = getField(fields, "year");
-                            int annualLeave = getIntField(fields, "annual_leave");
-                            int emergencyLeave = getIntField(fields, "emergency_leave");
-                            int medicalLeave = getIntField(fields, "medical_leave");
-                            int totalLeave = annualLeave + emergencyLeave + medicalLeave;
-
-                            StringBuilder result = new StringBuilder();
-                            result.append("========================================\n");
-                            result.append("           MY LEAVE BALANCE\n");
-                            result.append("========================================\n");
-                            result.append("Year            : ").append(year).append("\n");
-                            result.append("----------------------------------------\n");
-                            result.append("Annual Leave    : ").append(annualLeave).append(" days\n");
-                            result.append("Emergency Leave : ").append(emergencyLeave).append(" days\n");
-                            result.append("Medical Leave   : ").append(medicalLeave).append(" days\n");
-                            result.append("----------------------------------------\n");
-                            result.append("Total Remaining : ").append(totalLeave).append(" days\n");
-                            result.append("========================================");
-                            return result.toString();
-                        }
-                    }
-                }
+            JsonObject balanceDoc = findLeaveBalanceDoc(userId);
+            if (balanceDoc == null) {
                 return "No leave balance found. Please contact HR.";
             }
-            return "Failed to get leave balance.";
 
+            JsonObject fields = balanceDoc.getAsJsonObject("fields");
+            String year = getField(fields, "year");
+            int annualLeave = getIntField(fields, "annual_leave");
+            int emergencyLeave = getIntField(fields, "emergency_leave");
+            int medicalLeave = getIntField(fields, "medical_leave");
+            int totalLeave = annualLeave + emergencyLeave + medicalLeave;
+
+            StringBuilder result = new StringBuilder();
+            result.append("========================================\n");
+            result.append("           MY LEAVE BALANCE\n");
+            result.append("========================================\n");
+            result.append("Year            : ").append(year).append("\n");
+            result.append("----------------------------------------\n");
+            result.append("Annual Leave    : ").append(annualLeave).append(" days\n");
+            result.append("Emergency Leave : ").append(emergencyLeave).append(" days\n");
+            result.append("Medical Leave   : ").append(medicalLeave).append(" days\n");
+            result.append("----------------------------------------\n");
+            result.append("Total Remaining : ").append(totalLeave).append(" days\n");
+            result.append("========================================");
+            return result.toString();
+
+        } catch (java.io.IOException e) {
+            return "Failed to get leave balance.";
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
@@ -620,34 +563,12 @@ public class AuthService {
             // First check and reset if needed (new year)
             checkAndResetLeaveBalance(userId);
 
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Balance").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String docUserId = getField(fields, "userid");
-                        if (userId.equals(docUserId)) {
-                            int annualLeave = getIntField(fields, "annual_leave");
-                            int emergencyLeave = getIntField(fields, "emergency_leave");
-                            int medicalLeave = getIntField(fields, "medical_leave");
-
-                            balanceMap.put("annual", annualLeave);
-                            balanceMap.put("emergency", emergencyLeave);
-                            balanceMap.put("medical", medicalLeave);
-                            break;
-                        }
-                    }
-                }
+            JsonObject balanceDoc = findLeaveBalanceDoc(userId);
+            if (balanceDoc != null) {
+                JsonObject fields = balanceDoc.getAsJsonObject("fields");
+                balanceMap.put("annual", getIntField(fields, "annual_leave"));
+                balanceMap.put("emergency", getIntField(fields, "emergency_leave"));
+                balanceMap.put("medical", getIntField(fields, "medical_leave"));
             }
         } catch (Exception e) {
             System.out.println("Error getting leave balance data: " + e.getMessage());
@@ -656,6 +577,28 @@ public class AuthService {
         return balanceMap;
     }
 
+    /**
+     * Helper: Find the Leave_Balance document for one employee
+     * Served from LeaveBalanceCache; on a miss queries by userid so only the
+     * matching document is read, and caches it
+     *
+     * @param userId Employee's UID
+     * @return Raw Firestore document, or null if the employee has no balance yet
+     */
+    private JsonObject findLeaveBalanceDoc(String userId) throws java.io.IOException {
+        JsonObject cached = balances.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        java.util.List<JsonObject> docs = http.runQuery(
+                FirestoreQuery.from("Leave_Balance").whereEqualTo("userid", userId).limit(1));
+        if (docs.isEmpty()) {
+            return null;
+        }
+        balances.put(userId, docs.get(0));
+        return docs.get(0);
+    }
+
     /**
      * Get all employees from Firestore /users collection
      * Filters to only show users with role "employee" (not HR)
@@ -664,55 +607,41 @@ public class AuthService {
      */
     public String getAllEmployees() {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/users").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                StringBuilder result = new StringBuilder();
-                result.append("========================================\n");
-                result.append("           ALL EMPLOYEES\n");
-                result.append("========================================\n");
+            StringBuilder result = new StringBuilder();
+            result.append("========================================\n");
+            result.append("           ALL EMPLOYEES\n");
+            result.append("========================================\n");
+
+            int count = 1;
+            for (JsonObject docObj : http.listDocuments(FIRESTORE_URL + "/users")) {
+                JsonObject fields = docObj.getAsJsonObject("fields");
+                directory.put(docObj); // Warm the directory while we have the document
+
+                // Only show employees, not HR
+                String role = getField(fields, "role");
+                if (!"employee".equalsIgnoreCase(role)) {
+                    continue;
+                }
 
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    int count = 1;
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        // Only show employees, not HR
-                        String role = getField(fields, "role");
-                        if (!"employee".equalsIgnoreCase(role)) {
-                            continue;
-                        }
+                // Get UID from document name
+                String uid = getDocumentId(docObj);
 
-                        // Get UID from document name
-                        String name = docObj.get("name").getAsString();
-                        String uid = name.substring(name.lastIndexOf("/") + 1);
-
-                        result.append("\n[").append(count++).append("]\n");
-                        result.append("UID         : ").append(uid).append("\n");
-                        result.append("Email       : ").append(getField(fields, "email")).append("\n");
-                        result.append("First Name  : ").append(getField(fields, "first_name")).append("\n");
-                        result.append("Last Name   : ").append(getField(fields, "last_name")).append("\n");
-                        result.append("IC/Passport : ").append(getField(fields, "ic_passport")).append("\n");
-                        result.append("Role        : ").append(role).append("\n");
-                    }
-                    if (count == 1) {
-                        result.append("No employees found.\n");
-                    }
-                } else {
-                    result.append("No employees found.\n");
-                }
-                result.append("========================================");
-                return result.toString();
+                result.append("\n[").append(count++).append("]\n");
+                result.append("UID         : ").append(uid).append("\n");
+                result.append("Email       : ").append(getField(fields, "email")).append("\n");
+                result.append("First Name  : ").append(getField(fields, "first_name")).append("\n");
+                result.append("Last Name   : ").append(getField(fields, "last_name")).append("\n");
+                result.append("IC/Passport : ").append(getField(fields, "ic_passport")).append("\n");
+                result.append("Role        : ").append(role).append("\n");
             }
-            return "Failed to get employees.";
+            if (count == 1) {
+                result.append("No employees found.\n");
+            }
+            result.append("========================================");
+            return result.toString();
 
+        } catch (java.io.UncheckedIOException e) {
+            return "Failed to get employees.";
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
@@ -740,12 +669,14 @@ public class AuthService {
 
         // Delete from Firestore
         try {
-            URL url = URI.create(FIRESTORE_URL + "/users/" + uid).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("DELETE");
+            FirestoreClient.Response res = http.delete(FIRESTORE_URL + "/users/" + uid);
+            directory.invalidate(uid);
 
-            int code = conn.getResponseCode();
+            int code = res.getStatusCode();
             firestoreDeleted = (code == 200 || code == 204);
+            if (firestoreDeleted) {
+                directory.removeHrMember(uid);
+            }
             System.out.println("Firestore delete: " + (firestoreDeleted ? "Success" : "Failed"));
 
         } catch (java.io.IOException e) {
@@ -772,38 +703,21 @@ public class AuthService {
      */
     private boolean deletePayrollByUserId(String userId) {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/Payroll_Salary").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    int deletedCount = 0;
-
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String docUserId = getField(fields, "userid");
-                        if (userId.equals(docUserId)) {
-                            // Get payroll ID from document name
-                            String name = docObj.get("name").getAsString();
-                            String payrollId = name.substring(name.lastIndexOf("/") + 1);
-
-                            // Delete this payroll entry
-                            if (deletePayroll(payrollId)) {
-                                deletedCount++;
-                            }
-                        }
-                    }
-                    System.out.println("✓ Deleted " + deletedCount + " payroll entries");
-                    return true;
+            // Only this employee's payroll documents are read
+            java.util.List<JsonObject> docs = http.runQuery(
+                    FirestoreQuery.from("Payroll_Salary").whereEqualTo("userid", userId));
+
+            int deletedCount = 0;
+            for (JsonObject docObj : docs) {
+                // Get payroll ID from document name
+                String payrollId = getDocumentId(docObj);
+
+                // Delete this payroll entry
+                if (deletePayroll(payrollId)) {
+                    deletedCount++;
                 }
             }
+            System.out.println("✓ Deleted " + deletedCount + " payroll entries");
             return true; // No documents to delete is also success
 
         } catch (Exception e) {
@@ -814,60 +728,33 @@ public class AuthService {
 
     /**
      * Update employee data in Firestore
-     * Uses delete-and-recreate approach to avoid PATCH issues
-     * Email cannot be changed (read from existing document)
+     * Patches name, IC/passport and role only
+     * Email cannot be changed (left untouched in the document)
      */
     public boolean updateEmployee(String uid, String firstName, String lastName, String icPassport, String role) {
         try {
-            // First get the current data (email should not change)
-            String email = null;
-            URL getUrl = URI.create(FIRESTORE_URL + "/users/" + uid).toURL();
-            HttpURLConnection getConn = (HttpURLConnection) getUrl.openConnection();
-            getConn.setRequestMethod("GET");
-
-            if (getConn.getResponseCode() == 200) {
-                String response = readResponse(getConn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                JsonObject existingFields = json.getAsJsonObject("fields");
-                email = getField(existingFields, "email");
-            }
-
-            if (email == null) {
+            // Current email is only needed for the notification (it is not changed)
+            EmployeeDirectory.Entry current = directory.lookup(uid);
+            if (current == null || current.getEmail() == null) {
                 System.out.println("Could not get current employee data");
                 return false;
             }
+            String email = current.getEmail();
 
-            // Delete the document
-            URL deleteUrl = URI.create(FIRESTORE_URL + "/users/" + uid).toURL();
-            HttpURLConnection deleteConn = (HttpURLConnection) deleteUrl.openConnection();
-            deleteConn.setRequestMethod("DELETE");
-            deleteConn.getResponseCode(); // Execute delete
-
-            // Recreate with updated data
-            URL createUrl = URI.create(FIRESTORE_URL + "/users?documentId=" + uid).toURL();
-            HttpURLConnection createConn = (HttpURLConnection) createUrl.openConnection();
-            createConn.setRequestMethod("POST");
-            createConn.setRequestProperty("Content-Type", "application/json");
-            createConn.setDoOutput(true);
-
+            // Update only the editable fields
             JsonObject fields = new JsonObject();
-            fields.add("email", stringValue(email));
             fields.add("first_name", stringValue(firstName));
             fields.add("last_name", stringValue(lastName));
             fields.add("ic_passport", stringValue(icPassport));
             fields.add("role", stringValue(role));
 
-            JsonObject doc = new JsonObject();
-            doc.add("fields", fields);
+            FirestoreClient.Response res = http.updateFields(FIRESTORE_URL + "/users/" + uid, touch(fields));
+            directory.invalidate(uid);
 
-            try (OutputStream os = createConn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            if (res.isSuccess()) {
+                directory.updateHrMembership(uid, email, role);
 
-            int code = createConn.getResponseCode();
-            if (code == 200 || code == 201) {
                 // Send profile update notification to employee
-                EmailService emailService = new EmailService();
                 String subject = "Profile Updated - BHEL HRM System";
                 String body = "Dear " + firstName + " " + lastName + ",\n\n" +
                              "Your employee profile has been updated by HR.\n\n" +
@@ -885,7 +772,7 @@ public class AuthService {
                              "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
                              "This is an automated message. Please do not reply to this email.";
                 
-                emailService.sendEmail(email, subject, body);
+                outbox.enqueue(email, subject, body);
                 return true;
             }
             return false;
@@ -908,12 +795,10 @@ public class AuthService {
             String currentEmail = null;
             String role = null;
 
-            URL getUrl = URI.create(FIRESTORE_URL + "/users/" + uid).toURL();
-            HttpURLConnection getConn = (HttpURLConnection) getUrl.openConnection();
-            getConn.setRequestMethod("GET");
+            FirestoreClient.Response getRes = http.get(FIRESTORE_URL + "/users/" + uid);
 
-            if (getConn.getResponseCode() == 200) {
-                String response = readResponse(getConn);
+            if (getRes.getStatusCode() == 200) {
+                String response = getRes.getBody();
                 JsonObject json = JsonParser.parseString(response).getAsJsonObject();
                 JsonObject existingFields = json.getAsJsonObject("fields");
                 currentEmail = getField(existingFields, "email");
@@ -958,41 +843,21 @@ public class AuthService {
                 emailToSave = newEmail; // Even if same, ensure we use the non-null value
             }
 
-            // Delete the document
-            System.out.println("Deleting old Firestore document...");
-            URL deleteUrl = URI.create(FIRESTORE_URL + "/users/" + uid).toURL();
-            HttpURLConnection deleteConn = (HttpURLConnection) deleteUrl.openConnection();
-            deleteConn.setRequestMethod("DELETE");
-            int deleteCode = deleteConn.getResponseCode();
-            System.out.println("Delete response code: " + deleteCode);
-
-            // Recreate with updated data
-            System.out.println("Creating new Firestore document with updated data...");
-            URL createUrl = URI.create(FIRESTORE_URL + "/users?documentId=" + uid).toURL();
-            HttpURLConnection createConn = (HttpURLConnection) createUrl.openConnection();
-            createConn.setRequestMethod("POST");
-            createConn.setRequestProperty("Content-Type", "application/json");
-            createConn.setDoOutput(true);
-
+            // Update only the profile fields (role is left untouched)
             JsonObject fields = new JsonObject();
             fields.add("email", stringValue(emailToSave));
             fields.add("first_name", stringValue(firstName));
             fields.add("last_name", stringValue(lastName));
             fields.add("ic_passport", stringValue(icPassport));
-            fields.add("role", stringValue(role)); // Preserve role
-
-            JsonObject doc = new JsonObject();
-            doc.add("fields", fields);
 
-            try (OutputStream os = createConn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            FirestoreClient.Response updateRes = http.updateFields(FIRESTORE_URL + "/users/" + uid,
+                    touch(fields));
+            directory.invalidate(uid);
 
-            int code = createConn.getResponseCode();
-            if (code == 200 || code == 201) {
+            if (updateRes.isSuccess()) {
                 System.out.println("✓ Profile updated successfully in Firestore");
+                directory.updateHrMembership(uid, emailToSave, role);
                 // Send profile update confirmation
-                EmailService emailService = new EmailService();
                 String subject = "Profile Update Confirmation - BHEL HRM System";
                 String body = "Dear " + firstName + " " + lastName + ",\n\n" +
                              "Your profile has been successfully updated.\n\n" +
@@ -1008,10 +873,10 @@ public class AuthService {
                              "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
                              "This is an automated message. Please do not reply to this email.";
                 
-                emailService.sendEmail(emailToSave, subject, body);
+                outbox.enqueue(emailToSave, subject, body);
                 return "SUCCESS"; // Indicates success
             } else {
-                String errorResponse = readErrorResponse(createConn);
+                String errorResponse = updateRes.getBody();
                 String reason = parseFirebaseAuthError(errorResponse);
                 System.out.println("✗ Failed to update profile in Firestore: " + reason);
                 return "Error: Failed to update profile in database";
@@ -1029,12 +894,10 @@ public class AuthService {
      */
     public String getEmployeeRaw(String uid) {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/users/" + uid).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
+            FirestoreClient.Response res = http.get(FIRESTORE_URL + "/users/" + uid);
 
-            if (conn.getResponseCode() == 200) {
-                return readResponse(conn);
+            if (res.getStatusCode() == 200) {
+                return res.getBody();
             }
             return null;
         } catch (Exception e) {
@@ -1050,12 +913,10 @@ public class AuthService {
      */
     public String getEmployeeByUid(String uid) {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/users/" + uid).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
+            FirestoreClient.Response res = http.get(FIRESTORE_URL + "/users/" + uid);
 
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
+            if (res.getStatusCode() == 200) {
+                String response = res.getBody();
                 JsonObject json = JsonParser.parseString(response).getAsJsonObject();
                 JsonObject fields = json.getAsJsonObject("fields");
 
@@ -1092,6 +953,15 @@ public class AuthService {
         return obj;
     }
 
+    /**
+     * Helper: Extract the document ID (last path segment) from a Firestore document
+     * e.g. "projects/.../documents/users/abc123" -> "abc123"
+     */
+    private String getDocumentId(JsonObject doc) {
+        String name = doc.get("name").getAsString();
+        return name.substring(name.lastIndexOf("/") + 1);
+    }
+
     private String getField(JsonObject fields, String name) {
         if (fields != null && fields.has(name)) {
             return fields.getAsJsonObject(name).get("stringValue").getAsString();
@@ -1099,30 +969,6 @@ public class AuthService {
         return "N/A";
     }
 
-    private String readResponse(HttpURLConnection conn) throws Exception {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            return response.toString();
-        }
-    }
-
-    private String readErrorResponse(HttpURLConnection conn) throws Exception {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            return response.toString();
-        }
-    }
-
     /**
      * Helper: Create Firestore double value object
      * Firestore REST API requires: {"doubleValue": 123.45}
@@ -1175,32 +1021,14 @@ public class AuthService {
             String formattedMonth = String.format("%02d", month);
 
             // Check for duplicate entry (same user + month + year)
-            URL checkUrl = URI.create(FIRESTORE_URL + "/Payroll_Salary").toURL();
-            HttpURLConnection checkConn = (HttpURLConnection) checkUrl.openConnection();
-            checkConn.setRequestMethod("GET");
-
-            if (checkConn.getResponseCode() == 200) {
-                String response = readResponse(checkConn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String existingUserId = getField(fields, "userid");
-                        String existingMonth = getField(fields, "Month_Entry");
-                        String existingYear = getField(fields, "Year_Entry");
-
-                        if (userId.equals(existingUserId) &&
-                                formattedMonth.equals(existingMonth) &&
-                                yearEntry.equals(existingYear)) {
-                            return "Payroll entry already exists for this employee in " +
-                                    getMonthName(formattedMonth) + " " + yearEntry;
-                        }
-                    }
-                }
+            java.util.List<JsonObject> duplicates = http.runQuery(FirestoreQuery.from("Payroll_Salary")
+                    .whereEqualTo("userid", userId)
+                    .whereEqualTo("Month_Entry", formattedMonth)
+                    .whereEqualTo("Year_Entry", yearEntry)
+                    .limit(1));
+            if (!duplicates.isEmpty()) {
+                return "Payroll entry already exists for this employee in " +
+                        getMonthName(formattedMonth) + " " + yearEntry;
             }
 
             // Generate payroll ID
@@ -1208,12 +1036,6 @@ public class AuthService {
                     java.util.UUID.randomUUID().toString().substring(0, 8);
 
             // Create payroll document
-            URL url = URI.create(FIRESTORE_URL + "/Payroll_Salary?documentId=" + payrollId).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-
             JsonObject fields = new JsonObject();
             fields.add("payroll_id", stringValue(payrollId));
             fields.add("userid", stringValue(userId));
@@ -1222,20 +1044,20 @@ public class AuthService {
             fields.add("Year_Entry", stringValue(yearEntry));
 
             JsonObject doc = new JsonObject();
-            doc.add("fields", fields);
+            doc.add("fields", touch(fields));
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            FirestoreClient.Response res = http.post(FIRESTORE_URL + "/Payroll_Salary?documentId=" + payrollId,
+                    doc.toString());
 
-            int code = conn.getResponseCode();
+            int code = res.getStatusCode();
             if (code == 200 || code == 201) {
+                invalidations.publish("Payroll_Salary", payrollId);
+
                 // Send payroll notification to employee
                 String employeeEmail = getEmployeeEmail(userId);
                 String employeeName = getEmployeeName(userId);
                 
                 if (employeeEmail != null) {
-                    EmailService emailService = new EmailService();
                     String subject = "💰 Payroll Entry Added - " + getMonthName(formattedMonth) + " " + yearEntry;
                     String body = "Dear " + employeeName + ",\n\n" +
                                  "A new payroll entry has been added to your account.\n\n" +
@@ -1252,10 +1074,10 @@ public class AuthService {
                                  "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
                                  "This is an automated message. Please do not reply to this email.";
                     
-                    emailService.sendEmail(employeeEmail, subject, body);
+                    outbox.enqueue(employeeEmail, subject, body);
                 }
                 
-                return "Payroll entry added successfully! ID: " + payrollId + "\n✓ Notification sent to employee";
+                return "Payroll entry added successfully! ID: " + payrollId + "\n✓ Notification queued for employee";
             } else {
                 return "Failed to add payroll entry.";
             }
@@ -1275,59 +1097,71 @@ public class AuthService {
      */
     public String getAllPayroll() {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/Payroll_Salary").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                StringBuilder result = new StringBuilder();
-                result.append("========================================\n");
-                result.append("           ALL PAYROLL ENTRIES\n");
-                result.append("========================================\n");
-
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    int count = 1;
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String payrollId = getField(fields, "payroll_id");
-                        String userId = getField(fields, "userid");
-                        double salary = getDoubleField(fields, "Salary");
-                        String monthEntry = getField(fields, "Month_Entry");
-                        String yearEntry = getField(fields, "Year_Entry");
-
-                        // Get employee info
-                        String employeeInfo = getEmployeeNameAndEmail(userId);
-
-                        result.append("\n[").append(count++).append("]\n");
-                        result.append("Payroll ID  : ").append(payrollId).append("\n");
-                        result.append("Employee    : ").append(employeeInfo).append("\n");
-                        result.append("Salary      : RM ").append(String.format("%,.2f", salary)).append("\n");
-                        result.append("Month/Year  : ").append(getMonthName(monthEntry)).append(" ").append(yearEntry)
-                                .append("\n");
-                        result.append("----------------------------------------");
-                    }
-                    if (count == 1) {
-                        result.append("\nNo payroll entries found.\n");
-                    }
-                } else {
-                    result.append("\nNo payroll entries found.\n");
+            StringBuilder result = new StringBuilder();
+            result.append("========================================\n");
+            result.append("           ALL PAYROLL ENTRIES\n");
+            result.append("========================================\n");
+
+            // Entries are streamed and formatted in chunks; each chunk's employees
+            // are resolved in one batch, so memory stays bounded by the chunk size
+            java.util.List<JsonObject> chunk = new java.util.ArrayList<>(PAYROLL_PRELOAD_CHUNK);
+            int count = 1;
+            for (JsonObject docObj : http.listDocuments(FIRESTORE_URL + "/Payroll_Salary")) {
+                chunk.add(docObj);
+                if (chunk.size() == PAYROLL_PRELOAD_CHUNK) {
+                    count = appendPayrollChunk(result, chunk, count);
                 }
-                result.append("\n========================================");
-                return result.toString();
             }
-            return "Failed to get payroll entries.";
+            count = appendPayrollChunk(result, chunk, count);
+            if (count == 1) {
+                result.append("\nNo payroll entries found.\n");
+            }
+            result.append("\n========================================");
+            return result.toString();
 
+        } catch (java.io.UncheckedIOException e) {
+            return "Failed to get payroll entries.";
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
     }
 
+    /**
+     * Helper: Format a chunk of payroll documents (employees preloaded in one batch), then clear it
+     *
+     * @return Number of the next entry
+     */
+    private int appendPayrollChunk(StringBuilder result, java.util.List<JsonObject> chunk, int count) {
+        java.util.Set<String> userIds = new java.util.HashSet<>();
+        for (JsonObject docObj : chunk) {
+            userIds.add(getField(docObj.getAsJsonObject("fields"), "userid"));
+        }
+        directory.preload(userIds);
+
+        for (JsonObject docObj : chunk) {
+            JsonObject fields = docObj.getAsJsonObject("fields");
+
+            String payrollId = getField(fields, "payroll_id");
+            String userId = getField(fields, "userid");
+            double salary = getDoubleField(fields, "Salary");
+            String monthEntry = getField(fields, "Month_Entry");
+            String yearEntry = getField(fields, "Year_Entry");
+
+            // Get employee info
+            String employeeInfo = getEmployeeNameAndEmail(userId);
+
+            result.append("\n[").append(count++).append("]\n");
+            result.append("Payroll ID  : ").append(payrollId).append("\n");
+            result.append("Employee    : ").append(employeeInfo).append("\n");
+            result.append("Salary      : RM ").append(String.format("%,.2f", salary)).append("\n");
+            result.append("Month/Year  : ").append(getMonthName(monthEntry)).append(" ").append(yearEntry)
+                    .append("\n");
+            result.append("----------------------------------------");
+        }
+        chunk.clear();
+        return count;
+    }
+
     /**
      * Get payroll history for a specific employee
      * Filters entries by userId
@@ -1336,61 +1170,44 @@ public class AuthService {
      */
     public String getPayrollByUserId(String userId) {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/Payroll_Salary").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                // Get employee info
-                String employeeInfo = getEmployeeNameAndEmail(userId);
-
-                StringBuilder result = new StringBuilder();
-                result.append("========================================\n");
-                result.append("        PAYROLL HISTORY\n");
-                result.append("========================================\n");
-                result.append("Employee: ").append(employeeInfo).append("\n");
+            java.util.List<JsonObject> docs = http.runQuery(
+                    FirestoreQuery.from("Payroll_Salary").whereEqualTo("userid", userId));
+
+            // Get employee info
+            String employeeInfo = getEmployeeNameAndEmail(userId);
+
+            StringBuilder result = new StringBuilder();
+            result.append("========================================\n");
+            result.append("        PAYROLL HISTORY\n");
+            result.append("========================================\n");
+            result.append("Employee: ").append(employeeInfo).append("\n");
+            result.append("----------------------------------------");
+
+            int count = 1;
+            for (JsonObject docObj : docs) {
+                JsonObject fields = docObj.getAsJsonObject("fields");
+
+                String payrollId = getField(fields, "payroll_id");
+                double salary = getDoubleField(fields, "Salary");
+                String monthEntry = getField(fields, "Month_Entry");
+                String yearEntry = getField(fields, "Year_Entry");
+
+                result.append("\n[").append(count++).append("]\n");
+                result.append("Payroll ID  : ").append(payrollId).append("\n");
+                result.append("Salary      : RM ").append(String.format("%,.2f", salary)).append("\n");
+                result.append("Month/Year  : ").append(getMonthName(monthEntry)).append(" ").append(yearEntry)
+                        .append("\n");
                 result.append("----------------------------------------");
-
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    int count = 1;
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String docUserId = getField(fields, "userid");
-                        if (!userId.equals(docUserId)) {
-                            continue;
-                        }
-
-                        String payrollId = getField(fields, "payroll_id");
-                        double salary = getDoubleField(fields, "Salary");
-                        String monthEntry = getField(fields, "Month_Entry");
-                        String yearEntry = getField(fields, "Year_Entry");
-
-                        result.append("\n[").append(count++).append("]\n");
-                        result.append("Payroll ID  : ").append(payrollId).append("\n");
-                        result.append("Salary      : RM ").append(String.format("%,.2f", salary)).append("\n");
-                        result.append("Month/Year  : ").append(getMonthName(monthEntry)).append(" ").append(yearEntry)
-                                .append("\n");
-                        result.append("----------------------------------------");
-                    }
-                    if (count == 1) {
-                        result.append("\nNo payroll entries found for this employee.\n");
-                        result.append("----------------------------------------");
-                    }
-                } else {
-                    result.append("\nNo payroll entries found for this employee.\n");
-                    result.append("----------------------------------------");
-                }
-                result.append("\n========================================");
-                return result.toString();
             }
-            return "Failed to get payroll entries.";
+            if (count == 1) {
+                result.append("\nNo payroll entries found for this employee.\n");
+                result.append("----------------------------------------");
+            }
+            result.append("\n========================================");
+            return result.toString();
 
+        } catch (java.io.IOException e) {
+            return "Failed to get payroll entries.";
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
@@ -1398,7 +1215,7 @@ public class AuthService {
 
     /**
      * Update existing payroll entry
-     * Uses delete-and-recreate approach
+     * Patches Salary / Month_Entry / Year_Entry in place
      * Validates month/year before updating
      */
     public boolean updatePayroll(String payrollId, double salary, String monthEntry, String yearEntry) {
@@ -1420,54 +1237,23 @@ public class AuthService {
             // Format month as 2 digits
             String formattedMonth = String.format("%02d", month);
 
-            // First get the current payroll data (need userid)
-            String userId = null;
-
-            URL getUrl = URI.create(FIRESTORE_URL + "/Payroll_Salary/" + payrollId).toURL();
-            HttpURLConnection getConn = (HttpURLConnection) getUrl.openConnection();
-            getConn.setRequestMethod("GET");
-
-            if (getConn.getResponseCode() == 200) {
-                String response = readResponse(getConn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                JsonObject existingFields = json.getAsJsonObject("fields");
-                userId = getField(existingFields, "userid");
-            }
-
-            if (userId == null) {
-                System.out.println("Could not get current payroll data");
-                return false;
-            }
-
-            // Delete the document
-            URL deleteUrl = URI.create(FIRESTORE_URL + "/Payroll_Salary/" + payrollId).toURL();
-            HttpURLConnection deleteConn = (HttpURLConnection) deleteUrl.openConnection();
-            deleteConn.setRequestMethod("DELETE");
-            deleteConn.getResponseCode();
-
-            // Recreate with updated data
-            URL createUrl = URI.create(FIRESTORE_URL + "/Payroll_Salary?documentId=" + payrollId).toURL();
-            HttpURLConnection createConn = (HttpURLConnection) createUrl.openConnection();
-            createConn.setRequestMethod("POST");
-            createConn.setRequestProperty("Content-Type", "application/json");
-            createConn.setDoOutput(true);
-
+            // Update salary and period only (payroll_id and userid are unchanged)
             JsonObject fields = new JsonObject();
-            fields.add("payroll_id", stringValue(payrollId));
-            fields.add("userid", stringValue(userId));
             fields.add("Salary", doubleValue(salary));
             fields.add("Month_Entry", stringValue(formattedMonth));
             fields.add("Year_Entry", stringValue(yearEntry));
 
-            JsonObject doc = new JsonObject();
-            doc.add("fields", fields);
-
-            try (OutputStream os = createConn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
+            FirestoreClient.Response res = http.updateFields(FIRESTORE_URL + "/Payroll_Salary/" + payrollId,
+                    touch(fields));
+            if (res.getStatusCode() == 404) {
+                System.out.println("Could not get current payroll data");
+                return false;
             }
-
-            int code = createConn.getResponseCode();
-            return code == 200 || code == 201;
+            if (res.isSuccess()) {
+                invalidations.publish("Payroll_Salary", payrollId);
+                return true;
+            }
+            return false;
 
         } catch (Exception e) {
             System.out.println("Update Payroll Error: " + e.getMessage());
@@ -1483,11 +1269,10 @@ public class AuthService {
      */
     public boolean deletePayroll(String payrollId) {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/Payroll_Salary/" + payrollId).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("DELETE");
+            FirestoreClient.Response res = http.delete(FIRESTORE_URL + "/Payroll_Salary/" + payrollId);
 
-            int code = conn.getResponseCode();
+            int code = res.getStatusCode();
+            invalidations.publish("Payroll_Salary", payrollId);
             return code == 200 || code == 204;
 
         } catch (java.io.IOException e) {
@@ -1501,24 +1286,9 @@ public class AuthService {
      * Used when showing payroll entries to identify the employee
      */
     private String getEmployeeNameAndEmail(String userId) {
-        try {
-            URL url = URI.create(FIRESTORE_URL + "/users/" + userId).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                JsonObject fields = json.getAsJsonObject("fields");
-
-                String firstName = getField(fields, "first_name");
-                String lastName = getField(fields, "last_name");
-                String email = getField(fields, "email");
-
-                return firstName + " " + lastName + " (" + email + ")";
-            }
-        } catch (Exception e) {
-            // ignore
+        EmployeeDirectory.Entry user = directory.lookup(userId);
+        if (user != null) {
+            return orNA(user.getFirstName()) + " " + orNA(user.getLastName()) + " (" + orNA(user.getEmail()) + ")";
         }
         return "Unknown (" + userId + ")";
     }
@@ -1565,6 +1335,16 @@ public class AuthService {
         return obj;
     }
 
+    /**
+     * Helper: Stamp a write with the updated_at time ChangeTracker polls on
+     *
+     * @return The same fields object
+     */
+    private JsonObject touch(JsonObject fields) {
+        fields.add(ChangeTracker.UPDATED_AT, timestampValue(java.time.Instant.now().toString()));
+        return fields;
+    }
+
     /**
      * Helper: Create Firestore timestamp value object
      * Firestore REST API requires: {"timestampValue": "2024-01-01T00:00:00Z"}
@@ -1627,12 +1407,6 @@ public class AuthService {
             String dateCreatedAt = now.toString();
 
             // Create leave document
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Request?documentId=" + leaveId).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
-
             JsonObject fields = new JsonObject();
             fields.add("leave_id", stringValue(leaveId));
             fields.add("userid", stringValue(userId));
@@ -1645,13 +1419,12 @@ public class AuthService {
             fields.add("date_created_at", stringValue(dateCreatedAt));
 
             JsonObject doc = new JsonObject();
-            doc.add("fields", fields);
+            doc.add("fields", touch(fields));
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
-            }
+            FirestoreClient.Response res = http.post(FIRESTORE_URL + "/Leave_Request?documentId=" + leaveId,
+                    doc.toString());
 
-            int code = conn.getResponseCode();
+            int code = res.getStatusCode();
             if (code == 200 || code == 201) {
                 // Get employee details for email
                 String employeeEmail = getEmployeeEmail(userId);
@@ -1659,8 +1432,6 @@ public class AuthService {
                 
                 // Send confirmation email to employee
                 if (employeeEmail != null) {
-                    EmailService emailService = new EmailService();
-                    
                     // Email 1: Confirmation to employee
                     String employeeSubject = "Leave Application Submitted - " + leaveId;
                     String employeeBody = "Dear " + employeeName + ",\n\n" +
@@ -1682,7 +1453,7 @@ public class AuthService {
                                  "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
                                  "This is an automated message. Please do not reply to this email.";
                     
-                    emailService.sendEmail(employeeEmail, employeeSubject, employeeBody);
+                    outbox.enqueue(employeeEmail, employeeSubject, employeeBody);
                     
                     // Email 2: Notification to ALL HR team members
                     String hrSubject = "⚠️ New Leave Request - " + employeeName;
@@ -1708,20 +1479,19 @@ public class AuthService {
                                  "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
                                  "This is an automated message. Please do not reply to this email.";
                     
-                    // Send notification to all HR users
-                    java.util.List<String> hrEmails = getAllHREmails();
-                    for (String hrEmail : hrEmails) {
-                        emailService.sendEmail(hrEmail, hrSubject, hrBody);
-                    }
+                    // Send ONE notification to all HR users
+                    notifyHrTeam(hrSubject, hrBody);
                 }
+                invalidations.publish("Leave_Request", leaveId);
+                publishLeaveEvent(LeaveEvent.Type.APPLIED, leaveId, userId, lowerLeaveType, totalDays);
                 
                 return "Leave application submitted successfully!\n" +
                         "Leave ID: " + leaveId + "\n" +
                         "Status: Pending (awaiting HR approval)\n\n" +
-                        "✓ Confirmation email sent to: " + employeeEmail + "\n" +
-                        "✓ Notification sent to HR team";
+                        "✓ Confirmation email queued for: " + employeeEmail + "\n" +
+                        "✓ Notification queued for HR team";
             } else {
-                String error = readErrorResponse(conn);
+                String error = res.getBody();
                 String errorReason = parseFirebaseAuthError(error);
                 System.out.println("✗ Failed to submit leave application: " + errorReason);
                 return "Failed to submit leave application. Please try again.";
@@ -1741,93 +1511,98 @@ public class AuthService {
      */
     public String getLeavesByUserId(String userId) {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Request").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                // Get employee info
-                String employeeInfo = getEmployeeNameAndEmail(userId);
-
-                StringBuilder result = new StringBuilder();
-                result.append("========================================\n");
-                result.append("           MY LEAVE HISTORY\n");
-                result.append("========================================\n");
-                result.append("Employee: ").append(employeeInfo).append("\n");
+            java.util.List<JsonObject> docs = http.runQuery(
+                    FirestoreQuery.from("Leave_Request").whereEqualTo("userid", userId));
+
+            // Get employee info
+            String employeeInfo = getEmployeeNameAndEmail(userId);
+
+            StringBuilder result = new StringBuilder();
+            result.append("========================================\n");
+            result.append("           MY LEAVE HISTORY\n");
+            result.append("========================================\n");
+            result.append("Employee: ").append(employeeInfo).append("\n");
+            result.append("----------------------------------------");
+
+            int count = 1;
+            for (JsonObject docObj : docs) {
+                JsonObject fields = docObj.getAsJsonObject("fields");
+
+                String leaveId = getField(fields, "leave_id");
+                String leaveType = getField(fields, "leave_type");
+                String startDate = getField(fields, "start_date");
+                String endDate = getField(fields, "end_date");
+                int totalDays = getIntField(fields, "total_days");
+                String reason = getField(fields, "reason");
+                String status = getField(fields, "status");
+
+                result.append("\n[").append(count++).append("]\n");
+                result.append("Leave ID    : ").append(leaveId).append("\n");
+                result.append("Type        : ").append(capitalizeFirst(leaveType)).append("\n");
+                result.append("Period      : ").append(startDate).append(" to ").append(endDate).append("\n");
+                result.append("Total Days  : ").append(totalDays).append("\n");
+                result.append("Reason      : ").append(reason).append("\n");
+                result.append("Status      : ").append(getStatusDisplay(status)).append("\n");
                 result.append("----------------------------------------");
+            }
+            if (count == 1) {
+                result.append("\nNo leave applications found.\n");
+                result.append("----------------------------------------");
+            }
+            result.append("\n========================================");
+            return result.toString();
 
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    int count = 1;
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String docUserId = getField(fields, "userid");
-                        if (!userId.equals(docUserId)) {
-                            continue;
-                        }
-
-                        String leaveId = getField(fields, "leave_id");
-                        String leaveType = getField(fields, "leave_type");
-                        String startDate = getField(fields, "start_date");
-                        String endDate = getField(fields, "end_date");
-                        int totalDays = getIntField(fields, "total_days");
-                        String reason = getField(fields, "reason");
-                        String status = getField(fields, "status");
-
-                        result.append("\n[").append(count++).append("]\n");
-                        result.append("Leave ID    : ").append(leaveId).append("\n");
-                        result.append("Type        : ").append(capitalizeFirst(leaveType)).append("\n");
-                        result.append("Period      : ").append(startDate).append(" to ").append(endDate).append("\n");
-                        result.append("Total Days  : ").append(totalDays).append("\n");
-                        result.append("Reason      : ").append(reason).append("\n");
-                        result.append("Status      : ").append(getStatusDisplay(status)).append("\n");
-                        result.append("----------------------------------------");
-                    }
-                    if (count == 1) {
-                        result.append("\nNo leave applications found.\n");
-                        result.append("----------------------------------------");
-                    }
-                } else {
-                    result.append("\nNo leave applications found.\n");
-                    result.append("----------------------------------------");
-                }
-                result.append("\n========================================");
-                return result.toString();
-            }
-            return "Failed to get leave history.";
-
-        } catch (Exception e) {
-            return "Error: " + e.getMessage();
-        }
-    }
+        } catch (java.io.IOException e) {
+            return "Failed to get leave history.";
+        } catch (Exception e) {
+            return "Error: " + e.getMessage();
+        }
+    }
 
     /**
      * Approve a leave request
      * Checks if employee has sufficient balance before approving
-     * Deducts leave days from appropriate leave type upon approval
+     * Sets status and deducts leave days in one atomic commit, guarded by the
+     * updateTime of both documents so concurrent approvals cannot lose an update
      *
      * @param leaveId Leave request ID
      * @return Success/error message
      */
     public String approveLeave(String leaveId) {
+        return decideLeave(leaveId, true).message();
+    }
+
+    /**
+     * Approve or reject one leave request, with a structured outcome
+     *
+     * @param leaveId Leave request ID
+     * @param approve true to approve, false to reject
+     * @return Outcome (success flag + the message shown to HR)
+     */
+    public LeaveDecision decideLeave(String leaveId, boolean approve) {
         try {
             // Step 1: Get the leave request details
-            URL getUrl = URI.create(FIRESTORE_URL + "/Leave_Request/" + leaveId).toURL();
-            HttpURLConnection getConn = (HttpURLConnection) getUrl.openConnection();
-            getConn.setRequestMethod("GET");
-
-            if (getConn.getResponseCode() != 200) {
-                return "Leave request not found.";
+            FirestoreClient.Response getRes = http.get(FIRESTORE_URL + "/Leave_Request/" + leaveId);
+            if (getRes.getStatusCode() != 200) {
+                return failedDecision(leaveId, "Leave request not found.");
             }
+            JsonObject json = JsonParser.parseString(getRes.getBody()).getAsJsonObject();
+            return approve ? approveLeave(leaveId, json) : rejectLeave(leaveId, json);
+        } catch (Exception e) {
+            System.out.println((approve ? "Approve" : "Reject") + " Leave Error: " + e.getMessage());
+            return failedDecision(leaveId, "Error: " + e.getMessage());
+        }
+    }
 
-            String response = readResponse(getConn);
-            JsonObject json = JsonParser.parseString(response).getAsJsonObject();
+    /**
+     * Helper: Approve a leave request whose document was already read
+     *
+     * @param json The Leave_Request document (incl. updateTime)
+     */
+    private LeaveDecision approveLeave(String leaveId, JsonObject json) {
+        try {
             JsonObject fields = json.getAsJsonObject("fields");
+            String requestUpdateTime = json.get("updateTime").getAsString();
 
             String userId = getField(fields, "userid");
             String leaveType = getField(fields, "leave_type");
@@ -1835,85 +1610,68 @@ public class AuthService {
             String status = getField(fields, "status");
             String startDate = getField(fields, "start_date");
             String endDate = getField(fields, "end_date");
-            String reason = getField(fields, "reason");
-            String dateCreated = getField(fields, "date_created_at");
 
             // Check if already processed
             if (!"Pending".equalsIgnoreCase(status)) {
-                return "This leave request has already been " + status.toLowerCase() + ".";
+                return failedDecision(leaveId, "This leave request has already been " + status.toLowerCase() + ".");
             }
 
-            // Step 2: Check leave balance
-            java.util.Map<String, Integer> balanceData = getLeaveBalanceData(userId);
-            int currentBalance;
+            String balanceField = getLeaveBalanceField(leaveType);
+            if (balanceField == null) {
+                return failedDecision(leaveId, "Invalid leave type: " + leaveType);
+            }
 
-            switch (leaveType.toLowerCase()) {
-                case "annual":
-                    currentBalance = balanceData.get("annual");
-                    break;
-                case "emergency":
-                    currentBalance = balanceData.get("emergency");
-                    break;
-                case "medical":
-                    currentBalance = balanceData.get("medical");
-                    break;
-                default:
-                    return "Invalid leave type: " + leaveType;
+            // Step 2: Read the employee's balance (reset first if it is from a previous year)
+            String currentYear = String.valueOf(java.time.Year.now().getValue());
+            JsonObject balanceDoc = findLeaveBalanceDoc(userId);
+            if (balanceDoc == null || !currentYear.equals(getField(balanceDoc.getAsJsonObject("fields"), "year"))) {
+                checkAndResetLeaveBalance(userId);
+                balanceDoc = findLeaveBalanceDoc(userId);
             }
+            if (balanceDoc == null) {
+                return failedDecision(leaveId, "Failed to deduct leave balance. Approval cancelled.");
+            }
+            int currentBalance = getIntField(balanceDoc.getAsJsonObject("fields"), balanceField);
 
             // Check if sufficient balance
             if (currentBalance < totalDays) {
-                return "Insufficient leave balance! Employee has " + currentBalance + 
+                return failedDecision(leaveId, "Insufficient leave balance! Employee has " + currentBalance +
                        " days of " + capitalizeFirst(leaveType) + " leave, but requested " + totalDays + " days.\n" +
-                       "Cannot approve. Consider rejecting this request.";
-            }
-
-            // Step 3: Deduct from leave balance
-            boolean balanceDeducted = deductLeaveBalance(userId, leaveType, totalDays);
-            if (!balanceDeducted) {
-                return "Failed to deduct leave balance. Approval cancelled.";
-            }
-
-            // Step 4: Update leave request status to Approved (delete and recreate)
-            URL deleteUrl = URI.create(FIRESTORE_URL + "/Leave_Request/" + leaveId).toURL();
-            HttpURLConnection deleteConn = (HttpURLConnection) deleteUrl.openConnection();
-            deleteConn.setRequestMethod("DELETE");
-            deleteConn.getResponseCode();
-
-            URL createUrl = URI.create(FIRESTORE_URL + "/Leave_Request?documentId=" + leaveId).toURL();
-            HttpURLConnection createConn = (HttpURLConnection) createUrl.openConnection();
-            createConn.setRequestMethod("POST");
-            createConn.setRequestProperty("Content-Type", "application/json");
-            createConn.setDoOutput(true);
-
-            JsonObject newFields = new JsonObject();
-            newFields.add("leave_id", stringValue(leaveId));
-            newFields.add("userid", stringValue(userId));
-            newFields.add("leave_type", stringValue(leaveType));
-            newFields.add("start_date", stringValue(startDate));
-            newFields.add("end_date", stringValue(endDate));
-            newFields.add("total_days", integerValue(totalDays));
-            newFields.add("reason", stringValue(reason));
-            newFields.add("status", stringValue("Approved"));
-            newFields.add("date_created_at", stringValue(dateCreated));
+                       "Cannot approve. Consider rejecting this request.");
+            }
 
-            JsonObject doc = new JsonObject();
-            doc.add("fields", newFields);
+            // Step 3: Approve atomically in ONE commit - set status and deduct days,
+            // both only if neither document changed since it was read above
+            JsonObject statusField = new JsonObject();
+            statusField.add("status", stringValue("Approved"));
+
+            FirestoreClient.Response commitRes = http.commit(
+                    FirestoreWrite.update("Leave_Request", leaveId, touch(statusField))
+                            .ifUpdateTime(requestUpdateTime),
+                    FirestoreWrite.update("Leave_Balance", getDocumentId(balanceDoc), touch(new JsonObject()))
+                            .withIncrement(balanceField, -totalDays)
+                            .ifUpdateTime(balanceDoc.get("updateTime").getAsString()));
 
-            try (OutputStream os = createConn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
+            if (FirestoreClient.isPreconditionFailure(commitRes)) {
+                balances.invalidate(userId); // The cached balance may be the stale one
+                return failedDecision(leaveId,
+                        "This leave request or the employee's leave balance was changed by someone else.\n" +
+                        "Nothing was updated. Please try again.");
             }
 
-            int code = createConn.getResponseCode();
-            if (code == 200 || code == 201) {
+            if (commitRes.isSuccess()) {
+                int remainingBalance = getRemainingBalance(commitRes, currentBalance - totalDays);
+                cacheDeductedBalance(userId, balanceDoc, balanceField, remainingBalance, commitRes);
+                invalidations.publish("Leave_Request", leaveId);
+                invalidations.publish("Leave_Balance", userId);
+                publishLeaveEvent(LeaveEvent.Type.APPROVED, leaveId, userId, leaveType, totalDays);
+
                 // Get employee details for email
                 String employeeEmail = getEmployeeEmail(userId);
                 String employeeName = getEmployeeName(userId);
                 
                 // Send approval email to employee
                 if (employeeEmail != null) {
-                    EmailService emailService = new EmailService();
-                    
                     String subject = "✅ Leave Request APPROVED - " + leaveId;
                     String body = "Dear " + employeeName + ",\n\n" +
                                  "Great news! Your leave request has been APPROVED by HR.\n\n" +
@@ -1925,7 +1683,7 @@ public class AuthService {
                                  "End Date:           " + endDate + "\n" +
                                  "Approved Days:      " + totalDays + " day(s)\n" +
                                  "Days Deducted:      " + totalDays + " day(s)\n" +
-                                 "Remaining Balance:  " + (currentBalance - totalDays) + " day(s)\n" +
+                                 "Remaining Balance:  " + remainingBalance + " day(s)\n" +
                                  "Status:             ✅ APPROVED\n" +
                                  "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n\n" +
                                  "Your leave has been scheduled. Please ensure any necessary handovers " +
@@ -1936,22 +1694,22 @@ public class AuthService {
                                  "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
                                  "This is an automated message. Please do not reply to this email.";
                     
-                    emailService.sendEmail(employeeEmail, subject, body);
+                    outbox.enqueue(employeeEmail, subject, body);
                 }
                 
-                return "Leave request APPROVED successfully!\n" +
+                return new LeaveDecision(leaveId, true, "Leave request APPROVED successfully!\n" +
                        "Employee: " + getEmployeeNameAndEmail(userId) + "\n" +
                        "Leave Type: " + capitalizeFirst(leaveType) + "\n" +
                        "Days Deducted: " + totalDays + "\n" +
-                       "Remaining Balance: " + (currentBalance - totalDays) + " days\n\n" +
-                       "✓ Approval notification sent to: " + employeeEmail;
+                       "Remaining Balance: " + remainingBalance + " days\n\n" +
+                       "✓ Approval notification queued for: " + employeeEmail);
             } else {
-                return "Failed to update leave status.";
+                return failedDecision(leaveId, "Failed to update leave status.");
             }
 
         } catch (Exception e) {
             System.out.println("Approve Leave Error: " + e.getMessage());
-            return "Error: " + e.getMessage();
+            return failedDecision(leaveId, "Error: " + e.getMessage());
         }
     }
 
@@ -1963,19 +1721,18 @@ public class AuthService {
      * @return Success/error message
      */
     public String rejectLeave(String leaveId) {
-        try {
-            // Step 1: Get the leave request details
-            URL getUrl = URI.create(FIRESTORE_URL + "/Leave_Request/" + leaveId).toURL();
-            HttpURLConnection getConn = (HttpURLConnection) getUrl.openConnection();
-            getConn.setRequestMethod("GET");
-
-            if (getConn.getResponseCode() != 200) {
-                return "Leave request not found.";
-            }
+        return decideLeave(leaveId, false).message();
+    }
 
-            String response = readResponse(getConn);
-            JsonObject json = JsonParser.parseString(response).getAsJsonObject();
+    /**
+     * Helper: Reject a leave request whose document was already read
+     *
+     * @param json The Leave_Request document (incl. updateTime)
+     */
+    private LeaveDecision rejectLeave(String leaveId, JsonObject json) {
+        try {
             JsonObject fields = json.getAsJsonObject("fields");
+            String requestUpdateTime = json.get("updateTime").getAsString();
 
             String userId = getField(fields, "userid");
             String leaveType = getField(fields, "leave_type");
@@ -1983,54 +1740,36 @@ public class AuthService {
             String status = getField(fields, "status");
             String startDate = getField(fields, "start_date");
             String endDate = getField(fields, "end_date");
-            String reason = getField(fields, "reason");
-            String dateCreated = getField(fields, "date_created_at");
 
             // Check if already processed
             if (!"Pending".equalsIgnoreCase(status)) {
-                return "This leave request has already been " + status.toLowerCase() + ".";
-            }
-
-            // Step 2: Update leave request status to Rejected (delete and recreate)
-            URL deleteUrl = URI.create(FIRESTORE_URL + "/Leave_Request/" + leaveId).toURL();
-            HttpURLConnection deleteConn = (HttpURLConnection) deleteUrl.openConnection();
-            deleteConn.setRequestMethod("DELETE");
-            deleteConn.getResponseCode();
-
-            URL createUrl = URI.create(FIRESTORE_URL + "/Leave_Request?documentId=" + leaveId).toURL();
-            HttpURLConnection createConn = (HttpURLConnection) createUrl.openConnection();
-            createConn.setRequestMethod("POST");
-            createConn.setRequestProperty("Content-Type", "application/json");
-            createConn.setDoOutput(true);
-
-            JsonObject newFields = new JsonObject();
-            newFields.add("leave_id", stringValue(leaveId));
-            newFields.add("userid", stringValue(userId));
-            newFields.add("leave_type", stringValue(leaveType));
-            newFields.add("start_date", stringValue(startDate));
-            newFields.add("end_date", stringValue(endDate));
-            newFields.add("total_days", integerValue(totalDays));
-            newFields.add("reason", stringValue(reason));
-            newFields.add("status", stringValue("Rejected"));
-            newFields.add("date_created_at", stringValue(dateCreated));
+                return failedDecision(leaveId, "This leave request has already been " + status.toLowerCase() + ".");
+            }
 
-            JsonObject doc = new JsonObject();
-            doc.add("fields", newFields);
+            // Step 2: Update leave request status to Rejected (only if unchanged since read,
+            // so it cannot overwrite a concurrent approval)
+            JsonObject statusField = new JsonObject();
+            statusField.add("status", stringValue("Rejected"));
+
+            FirestoreClient.Response updateRes = http.commit(
+                    FirestoreWrite.update("Leave_Request", leaveId, touch(statusField))
+                            .ifUpdateTime(requestUpdateTime));
 
-            try (OutputStream os = createConn.getOutputStream()) {
-                os.write(doc.toString().getBytes(StandardCharsets.UTF_8));
+            if (FirestoreClient.isPreconditionFailure(updateRes)) {
+                return failedDecision(leaveId, "This leave request was changed by someone else.\n" +
+                       "Nothing was updated. Please try again.");
             }
 
-            int code = createConn.getResponseCode();
-            if (code == 200 || code == 201) {
+            if (updateRes.isSuccess()) {
+                invalidations.publish("Leave_Request", leaveId);
+                publishLeaveEvent(LeaveEvent.Type.REJECTED, leaveId, userId, leaveType, totalDays);
+
                 // Get employee details for email
                 String employeeEmail = getEmployeeEmail(userId);
                 String employeeName = getEmployeeName(userId);
                 
                 // Send rejection email to employee
                 if (employeeEmail != null) {
-                    EmailService emailService = new EmailService();
-                    
                     String subject = "❌ Leave Request REJECTED - " + leaveId;
                     String body = "Dear " + employeeName + ",\n\n" +
                                  "We regret to inform you that your leave request has been REJECTED by HR.\n\n" +
@@ -2051,24 +1790,134 @@ public class AuthService {
                                  "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n" +
                                  "This is an automated message. Please do not reply to this email.";
                     
-                    emailService.sendEmail(employeeEmail, subject, body);
+                    outbox.enqueue(employeeEmail, subject, body);
                 }
                 
-                return "Leave request REJECTED successfully!\n" +
+                return new LeaveDecision(leaveId, true, "Leave request REJECTED successfully!\n" +
                        "Employee: " + getEmployeeNameAndEmail(userId) + "\n" +
                        "Leave Type: " + capitalizeFirst(leaveType) + "\n" +
                        "Days: " + totalDays + " (No deduction - request rejected)\n\n" +
-                       "✓ Rejection notification sent to: " + employeeEmail;
+                       "✓ Rejection notification queued for: " + employeeEmail);
             } else {
-                return "Failed to update leave status.";
+                return failedDecision(leaveId, "Failed to update leave status.");
             }
 
         } catch (Exception e) {
             System.out.println("Reject Leave Error: " + e.getMessage());
-            return "Error: " + e.getMessage();
+            return failedDecision(leaveId, "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Set where leave events are sent (e.g. the RMI layer's event bus)
+     * The consumer must not block: it is called on the business call's thread
+     */
+    public void setLeaveEventSink(java.util.function.Consumer<LeaveEvent> sink) {
+        this.leaveEventSink = sink;
+    }
+
+    /**
+     * Helper: Report a leave change to the event sink (never fails the caller)
+     */
+    private void publishLeaveEvent(LeaveEvent.Type type, String leaveId, String userId, String leaveType,
+            int totalDays) {
+        try {
+            leaveEventSink.accept(new LeaveEvent(type, leaveId, userId, getEmployeeName(userId), leaveType,
+                    totalDays, System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            System.out.println("Leave event not published: " + e.getMessage());
         }
     }
 
+    /**
+     * Approve many leave requests in one call
+     * See decideLeaves for how they are processed
+     *
+     * @param leaveIds Leave request IDs
+     * @return One outcome per distinct ID, in input order
+     */
+    public java.util.List<LeaveDecision> approveLeaves(java.util.List<String> leaveIds) {
+        return decideLeaves(leaveIds, true);
+    }
+
+    /**
+     * Reject many leave requests in one call
+     *
+     * @param leaveIds Leave request IDs
+     * @return One outcome per distinct ID, in input order
+     */
+    public java.util.List<LeaveDecision> rejectLeaves(java.util.List<String> leaveIds) {
+        return decideLeaves(leaveIds, false);
+    }
+
+    /**
+     * Helper: Approve or reject a batch of leave requests
+     * - All requests are read with one batchGet and grouped by employee
+     * - Employees are processed in parallel (up to hrm.leave.bulkParallelism)
+     * - One employee's requests run one after another, so each approval sees
+     *   the balance left by the previous one and no commit hits a stale
+     *   updateTime precondition
+     * Each request goes through the same approve/reject logic as a single
+     * decision (checks, emails, messages), using the document already read.
+     */
+    private java.util.List<LeaveDecision> decideLeaves(java.util.List<String> leaveIds, boolean approve) {
+        java.util.List<String> ids = new java.util.ArrayList<>(new java.util.LinkedHashSet<>(leaveIds));
+        java.util.Map<String, LeaveDecision> outcomes = new java.util.concurrent.ConcurrentHashMap<>();
+
+        // Step 1: Read every request once and group the ids by employee
+        java.util.Map<String, java.util.List<String>> idsByUser = new java.util.LinkedHashMap<>();
+        java.util.Map<String, JsonObject> docs;
+        try {
+            docs = http.batchGet("Leave_Request", ids);
+            for (String leaveId : ids) {
+                JsonObject doc = docs.get(leaveId);
+                if (doc == null) {
+                    outcomes.put(leaveId, failedDecision(leaveId, "Leave request not found."));
+                    continue;
+                }
+                String userId = getField(doc.getAsJsonObject("fields"), "userid");
+                idsByUser.computeIfAbsent(userId, k -> new java.util.ArrayList<>()).add(leaveId);
+            }
+        } catch (java.io.IOException e) {
+            System.out.println("Bulk Leave Error: " + e.getMessage());
+            java.util.List<LeaveDecision> failed = new java.util.ArrayList<>();
+            for (String leaveId : ids) {
+                failed.add(failedDecision(leaveId, "Error: " + e.getMessage()));
+            }
+            return failed;
+        }
+
+        // Step 2: One task per employee, that employee's requests in order
+        java.util.List<java.util.concurrent.Callable<Void>> tasks = new java.util.ArrayList<>();
+        for (java.util.List<String> userLeaveIds : idsByUser.values()) {
+            tasks.add(() -> {
+                for (String leaveId : userLeaveIds) {
+                    JsonObject doc = docs.get(leaveId);
+                    outcomes.put(leaveId, approve ? approveLeave(leaveId, doc) : rejectLeave(leaveId, doc));
+                }
+                return null;
+            });
+        }
+        try {
+            bulkExecutor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        java.util.List<LeaveDecision> results = new java.util.ArrayList<>();
+        for (String leaveId : ids) {
+            results.add(outcomes.getOrDefault(leaveId,
+                    failedDecision(leaveId, "Not processed (server interrupted).")));
+        }
+        System.out.println("Bulk " + (approve ? "approve" : "reject") + ": " + results.stream()
+                .filter(LeaveDecision::success).count() + "/" + results.size() + " succeeded");
+        return results;
+    }
+
+    private static LeaveDecision failedDecision(String leaveId, String message) {
+        return new LeaveDecision(leaveId, false, message);
+    }
+
     /**
      * Generate yearly leave report
      * Aggregates all leave data for the specified year and exports to text file
@@ -2079,18 +1928,6 @@ public class AuthService {
      */
     public String generateYearlyReport(String year, String outputPath) {
         try {
-            // Fetch all leave requests
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Request").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() != 200) {
-                return "Failed to fetch leave data.";
-            }
-
-            String response = readResponse(conn);
-            JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
             // Data structures for statistics
             int totalRequests = 0;
             int pendingCount = 0;
@@ -2104,12 +1941,9 @@ public class AuthService {
             java.util.Map<String, String> employeeNames = new java.util.HashMap<>();
             int[] monthlyDistribution = new int[12];
 
-            // Process leave requests
-            if (json.has("documents")) {
-                JsonArray docs = json.getAsJsonArray("documents");
-
-                for (JsonElement doc : docs) {
-                    JsonObject docObj = doc.getAsJsonObject();
+            // Process leave requests page by page
+            try {
+                for (JsonObject docObj : http.listDocuments(FIRESTORE_URL + "/Leave_Request")) {
                     JsonObject fields = docObj.getAsJsonObject("fields");
 
                     String dateCreated = getField(fields, "date_created_at");
@@ -2155,9 +1989,6 @@ public class AuthService {
                     // Employee request count
                     String userId = getField(fields, "userid");
                     employeeRequestCount.put(userId, employeeRequestCount.getOrDefault(userId, 0) + 1);
-                    if (!employeeNames.containsKey(userId)) {
-                        employeeNames.put(userId, getEmployeeNameAndEmail(userId));
-                    }
 
                     // Monthly distribution
                     try {
@@ -2169,6 +2000,14 @@ public class AuthService {
                         // Skip if date parsing fails
                     }
                 }
+            } catch (java.io.UncheckedIOException e) {
+                return "Failed to fetch leave data.";
+            }
+
+            // Resolve all applicants' names in one batch
+            directory.preload(employeeRequestCount.keySet());
+            for (String userId : employeeRequestCount.keySet()) {
+                employeeNames.put(userId, getEmployeeNameAndEmail(userId));
             }
 
             // Calculate statistics
@@ -2275,96 +2114,70 @@ public class AuthService {
     }
 
     /**
-     * Helper: Deduct leave balance from employee's Leave_Balance
-     * Called when approving a leave request
+     * Helper: Map a leave type to its Leave_Balance field
      *
-     * @param userId Employee's UID
      * @param leaveType Type of leave (annual, emergency, medical)
-     * @param daysToDeduct Number of days to deduct
-     * @return true if successful
+     * @return Field name (e.g. "annual_leave"), or null for an unknown type
      */
-    private boolean deductLeaveBalance(String userId, String leaveType, int daysToDeduct) {
-        try {
-            // Get current leave balance document
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Balance").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
+    private String getLeaveBalanceField(String leaveType) {
+        switch (leaveType.toLowerCase()) {
+            case "annual":
+                return "annual_leave";
+            case "emergency":
+                return "emergency_leave";
+            case "medical":
+                return "medical_leave";
+            default:
+                return null;
+        }
+    }
 
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String docUserId = getField(fields, "userid");
-                        if (userId.equals(docUserId)) {
-                            String leaveBalanceId = getField(fields, "leave_balance_id");
-                            String year = getField(fields, "year");
-                            int annualLeave = getIntField(fields, "annual_leave");
-                            int emergencyLeave = getIntField(fields, "emergency_leave");
-                            int medicalLeave = getIntField(fields, "medical_leave");
-
-                            // Deduct from appropriate leave type
-                            switch (leaveType.toLowerCase()) {
-                                case "annual":
-                                    annualLeave -= daysToDeduct;
-                                    break;
-                                case "emergency":
-                                    emergencyLeave -= daysToDeduct;
-                                    break;
-                                case "medical":
-                                    medicalLeave -= daysToDeduct;
-                                    break;
-                            }
-
-                            // Update the leave balance (delete and recreate)
-                            URL deleteUrl = URI.create(FIRESTORE_URL + "/Leave_Balance/" + leaveBalanceId).toURL();
-                            HttpURLConnection deleteConn = (HttpURLConnection) deleteUrl.openConnection();
-                            deleteConn.setRequestMethod("DELETE");
-                            deleteConn.getResponseCode();
-
-                            URL createUrl = URI.create(FIRESTORE_URL + "/Leave_Balance?documentId=" + leaveBalanceId).toURL();
-                            HttpURLConnection createConn = (HttpURLConnection) createUrl.openConnection();
-                            createConn.setRequestMethod("POST");
-                            createConn.setRequestProperty("Content-Type", "application/json");
-                            createConn.setDoOutput(true);
-
-                            JsonObject newFields = new JsonObject();
-                            newFields.add("leave_balance_id", stringValue(leaveBalanceId));
-                            newFields.add("userid", stringValue(userId));
-                            newFields.add("year", stringValue(year));
-                            newFields.add("annual_leave", integerValue(annualLeave));
-                            newFields.add("emergency_leave", integerValue(emergencyLeave));
-                            newFields.add("medical_leave", integerValue(medicalLeave));
-
-                            JsonObject newDoc = new JsonObject();
-                            newDoc.add("fields", newFields);
-
-                            try (OutputStream os = createConn.getOutputStream()) {
-                                os.write(newDoc.toString().getBytes(StandardCharsets.UTF_8));
-                            }
-
-                            int code = createConn.getResponseCode();
-                            if (code == 200 || code == 201) {
-                                System.out.println("Leave balance deducted: " + daysToDeduct + " days from " + leaveType);
-                                return true;
-                            }
-                            return false;
-                        }
-                    }
+    /**
+     * Helper: Read the balance left after an increment transform
+     * The commit response carries the new value in writeResults[].transformResults
+     *
+     * @param commitRes Successful commit response
+     * @param fallback  Value to use if the response has no transform result
+     */
+    private int getRemainingBalance(FirestoreClient.Response commitRes, int fallback) {
+        try {
+            for (com.google.gson.JsonElement result : JsonParser.parseString(commitRes.getBody())
+                    .getAsJsonObject().getAsJsonArray("writeResults")) {
+                JsonObject writeResult = result.getAsJsonObject();
+                if (writeResult.has("transformResults")) {
+                    return writeResult.getAsJsonArray("transformResults").get(0).getAsJsonObject()
+                            .get("integerValue").getAsInt();
                 }
             }
-            return false;
+        } catch (Exception e) {
+            // fall through
+        }
+        return fallback;
+    }
 
+    /**
+     * Helper: Write an approved deduction through to LeaveBalanceCache
+     * The cached copy gets the new value and the updateTime from the commit
+     * response; if that cannot be read the entry is dropped instead
+     */
+    private void cacheDeductedBalance(String userId, JsonObject balanceDoc, String balanceField, int remaining,
+            FirestoreClient.Response commitRes) {
+        try {
+            for (com.google.gson.JsonElement result : JsonParser.parseString(commitRes.getBody())
+                    .getAsJsonObject().getAsJsonArray("writeResults")) {
+                JsonObject writeResult = result.getAsJsonObject();
+                if (writeResult.has("transformResults")) {
+                    JsonObject updated = balanceDoc.deepCopy();
+                    updated.getAsJsonObject("fields").add(balanceField, integerValue(remaining));
+                    updated.addProperty("updateTime", writeResult.get("updateTime").getAsString());
+                    balances.put(userId, updated);
+                    return;
+                }
+            }
         } catch (Exception e) {
-            System.out.println("Deduct Leave Balance Error: " + e.getMessage());
-            return false;
+            // fall through
         }
+        balances.invalidate(userId);
     }
 
     /**
@@ -2375,62 +2188,54 @@ public class AuthService {
      */
     public String getAllPendingLeaves() {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/Leave_Request").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
+            StringBuilder result = new StringBuilder();
+            result.append("========================================\n");
+            result.append("      PENDING LEAVE REQUESTS\n");
+            result.append("========================================\n");
 
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
+            // Only pending requests are read (status filter runs in Firestore)
+            java.util.List<JsonObject> docs = http.runQuery(
+                    FirestoreQuery.from("Leave_Request").whereEqualTo("status", "Pending"));
 
-                StringBuilder result = new StringBuilder();
-                result.append("========================================\n");
-                result.append("      PENDING LEAVE REQUESTS\n");
-                result.append("========================================\n");
-
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    int count = 1;
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
+            // Resolve every applicant in one batch instead of one lookup per row
+            java.util.Set<String> userIds = new java.util.HashSet<>();
+            for (JsonObject docObj : docs) {
+                userIds.add(getField(docObj.getAsJsonObject("fields"), "userid"));
+            }
+            directory.preload(userIds);
 
-                        String status = getField(fields, "status");
-                        if (!"Pending".equalsIgnoreCase(status)) {
-                            continue; // Skip non-pending requests
-                        }
+            int count = 1;
+            for (JsonObject docObj : docs) {
+                JsonObject fields = docObj.getAsJsonObject("fields");
 
-                        String leaveId = getField(fields, "leave_id");
-                        String userId = getField(fields, "userid");
-                        String employeeInfo = getEmployeeNameAndEmail(userId);
-                        String leaveType = getField(fields, "leave_type");
-                        String startDate = getField(fields, "start_date");
-                        String endDate = getField(fields, "end_date");
-                        int totalDays = getIntField(fields, "total_days");
-                        String reason = getField(fields, "reason");
-                        String dateCreated = getField(fields, "date_created_at");
-
-                        result.append("\n[").append(count++).append("]\n");
-                        result.append("Leave ID    : ").append(leaveId).append("\n");
-                        result.append("Employee    : ").append(employeeInfo).append("\n");
-                        result.append("Type        : ").append(capitalizeFirst(leaveType)).append("\n");
-                        result.append("Period      : ").append(startDate).append(" to ").append(endDate).append("\n");
-                        result.append("Total Days  : ").append(totalDays).append("\n");
-                        result.append("Reason      : ").append(reason).append("\n");
-                        result.append("Applied On  : ").append(dateCreated.substring(0, 10)).append("\n");
-                        result.append("----------------------------------------");
-                    }
-                    if (count == 1) {
-                        result.append("\nNo pending leave requests.\n");
-                    }
-                } else {
-                    result.append("\nNo pending leave requests.\n");
-                }
-                result.append("\n========================================");
-                return result.toString();
+                String leaveId = getField(fields, "leave_id");
+                String userId = getField(fields, "userid");
+                String employeeInfo = getEmployeeNameAndEmail(userId);
+                String leaveType = getField(fields, "leave_type");
+                String startDate = getField(fields, "start_date");
+                String endDate = getField(fields, "end_date");
+                int totalDays = getIntField(fields, "total_days");
+                String reason = getField(fields, "reason");
+                String dateCreated = getField(fields, "date_created_at");
+
+                result.append("\n[").append(count++).append("]\n");
+                result.append("Leave ID    : ").append(leaveId).append("\n");
+                result.append("Employee    : ").append(employeeInfo).append("\n");
+                result.append("Type        : ").append(capitalizeFirst(leaveType)).append("\n");
+                result.append("Period      : ").append(startDate).append(" to ").append(endDate).append("\n");
+                result.append("Total Days  : ").append(totalDays).append("\n");
+                result.append("Reason      : ").append(reason).append("\n");
+                result.append("Applied On  : ").append(dateCreated.substring(0, 10)).append("\n");
+                result.append("----------------------------------------");
             }
-            return "Failed to fetch pending leave requests.";
+            if (count == 1) {
+                result.append("\nNo pending leave requests.\n");
+            }
+            result.append("\n========================================");
+            return result.toString();
 
+        } catch (java.io.IOException e) {
+            return "Failed to fetch pending leave requests.";
         } catch (Exception e) {
             return "Error: " + e.getMessage();
         }
@@ -2473,67 +2278,27 @@ public class AuthService {
      * @return Employee's email address or null if not found
      */
     private String getEmployeeEmail(String userId) {
-        try {
-            URL url = URI.create(FIRESTORE_URL + "/users/" + userId).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                JsonObject fields = json.getAsJsonObject("fields");
-                return getField(fields, "email");
-            }
-        } catch (Exception e) {
-            System.out.println("Error getting employee email: " + e.getMessage());
-        }
-        return null;
+        EmployeeDirectory.Entry user = directory.lookup(userId);
+        return user != null ? orNA(user.getEmail()) : null;
     }
 
     /**
-     * Helper: Get all HR users' email addresses
-     * Queries the users collection for all users with role="hr"
-     * Used for sending notifications to all HR personnel
-     * 
-     * @return List of HR email addresses
+     * Helper: Notify the whole HR team with a single email
+     * Goes to the distribution address in hrm.mail.hrDistribution when set,
+     * otherwise to every HR user (cached in EmployeeDirectory) as BCC
      */
-    private java.util.List<String> getAllHREmails() {
-        java.util.List<String> hrEmails = new java.util.ArrayList<>();
-        try {
-            URL url = URI.create(FIRESTORE_URL + "/users").toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
+    private void notifyHrTeam(String subject, String body) {
+        if (HR_DISTRIBUTION_ADDRESS != null && !HR_DISTRIBUTION_ADDRESS.isEmpty()) {
+            outbox.enqueue(HR_DISTRIBUTION_ADDRESS, subject, body);
+            return;
+        }
 
-                if (json.has("documents")) {
-                    JsonArray docs = json.getAsJsonArray("documents");
-                    for (JsonElement doc : docs) {
-                        JsonObject docObj = doc.getAsJsonObject();
-                        JsonObject fields = docObj.getAsJsonObject("fields");
-
-                        String role = getField(fields, "role");
-                        if ("hr".equalsIgnoreCase(role)) {
-                            String email = getField(fields, "email");
-                            if (email != null && !email.equals("N/A")) {
-                                hrEmails.add(email);
-                            }
-                        }
-                    }
-                }
-            }
-            
-            if (hrEmails.isEmpty()) {
-                System.out.println("Warning: No HR users found in database");
-            } else {
-                System.out.println("Found " + hrEmails.size() + " HR user(s): " + hrEmails);
-            }
-        } catch (Exception e) {
-            System.out.println("Error getting HR emails: " + e.getMessage());
+        java.util.Collection<String> hrEmails = directory.getHrEmails();
+        if (hrEmails.isEmpty()) {
+            System.out.println("Warning: No HR users found in database");
+            return;
         }
-        return hrEmails;
+        outbox.enqueueBcc(hrEmails, subject, body);
     }
 
     /**
@@ -2544,23 +2309,333 @@ public class AuthService {
      * @return Employee's full name or "Employee" if not found
      */
     private String getEmployeeName(String userId) {
+        EmployeeDirectory.Entry user = directory.lookup(userId);
+        if (user != null) {
+            return orNA(user.getFirstName()) + " " + orNA(user.getLastName());
+        }
+        return "Employee";
+    }
+
+    /**
+     * Helper: Show "N/A" for a field missing from a directory entry
+     * (same placeholder getField uses for raw Firestore documents)
+     */
+    private String orNA(String value) {
+        return value != null ? value : "N/A";
+    }
+
+    // ==================== TYPED RECORDS (model DTOs) ====================
+    // Same data as the formatted-string methods above, returned as records so
+    // clients render it themselves. Failures are thrown as IOException.
+
+    /**
+     * Get all users with role "employee" (not HR)
+     */
+    public java.util.List<Employee> listEmployees() throws java.io.IOException {
+        java.util.List<Employee> employees = new java.util.ArrayList<>();
         try {
-            URL url = URI.create(FIRESTORE_URL + "/users/" + userId).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
+            for (JsonObject docObj : http.listDocuments(FIRESTORE_URL + "/users")) {
+                directory.put(docObj); // Warm the directory while we have the document
+                Employee employee = toEmployee(EmployeeDirectory.Entry.fromDocument(docObj));
+                if ("employee".equalsIgnoreCase(employee.role())) {
+                    employees.add(employee);
+                }
+            }
+        } catch (java.io.UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return employees;
+    }
 
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-                JsonObject fields = json.getAsJsonObject("fields");
+    /**
+     * Get one user by UID
+     *
+     * @return Employee, or null if not found
+     */
+    public Employee findEmployee(String uid) {
+        EmployeeDirectory.Entry user = directory.lookup(uid);
+        return user != null ? toEmployee(user) : null;
+    }
 
-                String firstName = getField(fields, "first_name");
-                String lastName = getField(fields, "last_name");
-                return firstName + " " + lastName;
+    /**
+     * Get all payroll entries with employee name/email resolved
+     */
+    public java.util.List<PayrollEntry> listPayroll() throws java.io.IOException {
+        java.util.List<JsonObject> docs = new java.util.ArrayList<>();
+        try {
+            for (JsonObject docObj : http.listDocuments(FIRESTORE_URL + "/Payroll_Salary")) {
+                docs.add(docObj);
             }
-        } catch (Exception e) {
-            System.out.println("Error getting employee name: " + e.getMessage());
+        } catch (java.io.UncheckedIOException e) {
+            throw e.getCause();
         }
-        return "Employee";
+        return toPayrollEntries(docs);
+    }
+
+    /**
+     * Get one employee's payroll entries
+     */
+    public java.util.List<PayrollEntry> listPayrollByUserId(String userId) throws java.io.IOException {
+        return toPayrollEntries(http.runQuery(
+                FirestoreQuery.from("Payroll_Salary").whereEqualTo("userid", userId)));
+    }
+
+    /**
+     * Get all leave requests with status "Pending"
+     */
+    public java.util.List<LeaveRequest> listPendingLeaves() throws java.io.IOException {
+        return toLeaveRequests(http.runQuery(
+                FirestoreQuery.from("Leave_Request").whereEqualTo("status", "Pending")));
+    }
+
+    /**
+     * Get one employee's leave requests (all statuses)
+     */
+    public java.util.List<LeaveRequest> listLeavesByUserId(String userId) throws java.io.IOException {
+        return toLeaveRequests(http.runQuery(
+                FirestoreQuery.from("Leave_Request").whereEqualTo("userid", userId)));
+    }
+
+    /**
+     * Get one employee's leave balance (reset first if it is from a previous year)
+     *
+     * @return LeaveBalance, or null if the employee has none
+     */
+    public LeaveBalance findLeaveBalance(String userId) throws java.io.IOException {
+        checkAndResetLeaveBalance(userId);
+
+        JsonObject balanceDoc = findLeaveBalanceDoc(userId);
+        if (balanceDoc == null) {
+            return null;
+        }
+        JsonObject fields = balanceDoc.getAsJsonObject("fields");
+        return new LeaveBalance(userId, getField(fields, "year"),
+                getIntField(fields, "annual_leave"),
+                getIntField(fields, "emergency_leave"),
+                getIntField(fields, "medical_leave"));
+    }
+
+    // ==================== PAGED LISTINGS ====================
+    // Server-side sorted and filtered, one bounded page per call. A sort key
+    // may be prefixed with "-" for descending order. Documents missing the
+    // sort field are not returned (Firestore orderBy semantics); filtering on
+    // one field while sorting on another needs a composite index.
+
+    // Largest page a client may ask for
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Allowed sort keys -> Firestore field
+    private static final java.util.Map<String, String> EMPLOYEE_SORT_KEYS = java.util.Map.of(
+            "email", "email", "first_name", "first_name", "last_name", "last_name");
+    private static final java.util.Map<String, String> PAYROLL_SORT_KEYS = java.util.Map.of(
+            "year", "Year_Entry", "month", "Month_Entry", "salary", "Salary", "userid", "userid");
+    private static final java.util.Map<String, String> LEAVE_SORT_KEYS = java.util.Map.of(
+            "created", "date_created_at", "start", "start_date", "days", "total_days", "type", "leave_type");
+
+    /**
+     * Get one page of users
+     *
+     * @param pageSize Items per page (1-100)
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param sortKey email, first_name or last_name (default email)
+     * @param role Only users with this role (e.g. "employee"), or null for all
+     */
+    public Page<Employee> listEmployeesPage(int pageSize, String cursor, String sortKey, String role)
+            throws java.io.IOException {
+        FirestoreQuery query = FirestoreQuery.from("users");
+        if (role != null && !role.isEmpty()) {
+            query.whereEqualTo("role", role.toLowerCase());
+        }
+        return queryPage(query, EMPLOYEE_SORT_KEYS, "email", sortKey, pageSize, cursor, docs -> {
+            java.util.List<Employee> employees = new java.util.ArrayList<>();
+            for (JsonObject docObj : docs) {
+                directory.put(docObj); // Warm the directory while we have the document
+                employees.add(toEmployee(EmployeeDirectory.Entry.fromDocument(docObj)));
+            }
+            return employees;
+        });
+    }
+
+    /**
+     * Get one page of payroll entries
+     *
+     * @param sortKey year, month, salary or userid (default -year, newest first)
+     * @param year Only this year (e.g. "2025"), or null
+     * @param month Only this month (1-12), or null
+     */
+    public Page<PayrollEntry> listPayrollPage(int pageSize, String cursor, String sortKey, String year,
+            String month) throws java.io.IOException {
+        FirestoreQuery query = FirestoreQuery.from("Payroll_Salary");
+        if (year != null && !year.isEmpty()) {
+            query.whereEqualTo("Year_Entry", year);
+        }
+        if (month != null && !month.isEmpty()) {
+            query.whereEqualTo("Month_Entry", String.format("%02d", parseMonthFilter(month)));
+        }
+        return queryPage(query, PAYROLL_SORT_KEYS, "-year", sortKey, pageSize, cursor, this::toPayrollEntries);
+    }
+
+    /**
+     * Get one page of pending leave requests
+     *
+     * @param sortKey created, start, days or type (default created, oldest first)
+     * @param leaveType Only this leave type (annual/emergency/medical), or null
+     */
+    public Page<LeaveRequest> listPendingLeavesPage(int pageSize, String cursor, String sortKey, String leaveType)
+            throws java.io.IOException {
+        FirestoreQuery query = FirestoreQuery.from("Leave_Request").whereEqualTo("status", "Pending");
+        if (leaveType != null && !leaveType.isEmpty()) {
+            query.whereEqualTo("leave_type", leaveType.toLowerCase());
+        }
+        return queryPage(query, LEAVE_SORT_KEYS, "created", sortKey, pageSize, cursor, this::toLeaveRequests);
+    }
+
+    /**
+     * Helper: Parse a month filter ("3" or "03")
+     *
+     * @throws IllegalArgumentException if it is not a number from 1 to 12
+     */
+    private static int parseMonthFilter(String month) {
+        try {
+            int value = Integer.parseInt(month.trim());
+            if (value >= 1 && value <= 12) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid month: " + month + " (expected 1-12)");
+    }
+
+    /**
+     * Helper: Run a query for one page
+     * Orders by the sort field and then the document name (a unique tie-breaker),
+     * fetches one extra document to know whether another page exists, and
+     * encodes the last returned document's order values as the next cursor.
+     */
+    private <T> Page<T> queryPage(FirestoreQuery query, java.util.Map<String, String> sortKeys,
+            String defaultSortKey, String sortKey, int pageSize, String cursor,
+            java.util.function.Function<java.util.List<JsonObject>, java.util.List<T>> converter)
+            throws java.io.IOException {
+        String key = (sortKey == null || sortKey.isEmpty()) ? defaultSortKey : sortKey;
+        boolean descending = key.startsWith("-");
+        String sortField = sortKeys.get(descending ? key.substring(1) : key);
+        if (sortField == null) {
+            throw new IllegalArgumentException("Unknown sort key: " + key + " (allowed: " + sortKeys.keySet() + ")");
+        }
+        int size = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        query.orderBy(sortField, descending).orderBy("__name__", descending).limit(size + 1);
+        if (cursor != null && !cursor.isEmpty()) {
+            query.startAfter(decodeCursor(cursor));
+        }
+
+        java.util.List<JsonObject> docs = http.runQuery(query);
+        String nextCursor = null;
+        if (docs.size() > size) {
+            docs = docs.subList(0, size);
+            nextCursor = encodeCursor(docs.get(size - 1), sortField);
+        }
+        return new Page<>(new java.util.ArrayList<>(converter.apply(docs)), nextCursor);
+    }
+
+    /**
+     * Helper: Cursor = base64url of [sort field value, document reference]
+     */
+    private String encodeCursor(JsonObject lastDoc, String sortField) {
+        com.google.gson.JsonArray values = new com.google.gson.JsonArray();
+        values.add(lastDoc.getAsJsonObject("fields").get(sortField));
+        JsonObject reference = new JsonObject();
+        reference.addProperty("referenceValue", lastDoc.get("name").getAsString());
+        values.add(reference);
+        return java.util.Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(values.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    private com.google.gson.JsonArray decodeCursor(String cursor) {
+        try {
+            String json = new String(java.util.Base64.getUrlDecoder().decode(cursor),
+                    java.nio.charset.StandardCharsets.UTF_8);
+            com.google.gson.JsonArray values = JsonParser.parseString(json).getAsJsonArray();
+            if (values.size() != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return values;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Helper: Convert a directory entry to the Employee record
+     */
+    private Employee toEmployee(EmployeeDirectory.Entry user) {
+        return new Employee(user.getUid(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getIcPassport(), user.getRole());
+    }
+
+    /**
+     * Helper: Convert Payroll_Salary documents, resolving all employees in one batch
+     */
+    private java.util.List<PayrollEntry> toPayrollEntries(java.util.List<JsonObject> docs) {
+        java.util.Set<String> userIds = new java.util.HashSet<>();
+        for (JsonObject docObj : docs) {
+            userIds.add(getField(docObj.getAsJsonObject("fields"), "userid"));
+        }
+        directory.preload(userIds);
+
+        java.util.List<PayrollEntry> entries = new java.util.ArrayList<>();
+        for (JsonObject docObj : docs) {
+            JsonObject fields = docObj.getAsJsonObject("fields");
+            String userId = getField(fields, "userid");
+            EmployeeDirectory.Entry user = directory.lookup(userId);
+            entries.add(new PayrollEntry(
+                    getField(fields, "payroll_id"),
+                    userId,
+                    user != null ? orNA(user.getFirstName()) + " " + orNA(user.getLastName()) : null,
+                    user != null ? user.getEmail() : null,
+                    getDoubleField(fields, "Salary"),
+                    getField(fields, "Month_Entry"),
+                    getField(fields, "Year_Entry")));
+        }
+        return entries;
+    }
+
+    /**
+     * Helper: Convert Leave_Request documents, resolving all employees in one batch
+     */
+    private java.util.List<LeaveRequest> toLeaveRequests(java.util.List<JsonObject> docs) {
+        java.util.Set<String> userIds = new java.util.HashSet<>();
+        for (JsonObject docObj : docs) {
+            userIds.add(getField(docObj.getAsJsonObject("fields"), "userid"));
+        }
+        directory.preload(userIds);
+
+        java.util.List<LeaveRequest> requests = new java.util.ArrayList<>();
+        for (JsonObject docObj : docs) {
+            requests.add(toLeaveRequest(docObj));
+        }
+        return requests;
+    }
+
+    /**
+     * Helper: Convert one Leave_Request document (employee looked up in the directory)
+     */
+    private LeaveRequest toLeaveRequest(JsonObject docObj) {
+        JsonObject fields = docObj.getAsJsonObject("fields");
+        String userId = getField(fields, "userid");
+        EmployeeDirectory.Entry user = directory.lookup(userId);
+        return new LeaveRequest(
+                getField(fields, "leave_id"),
+                userId,
+                user != null ? orNA(user.getFirstName()) + " " + orNA(user.getLastName()) : null,
+                user != null ? user.getEmail() : null,
+                getField(fields, "leave_type"),
+                getField(fields, "start_date"),
+                getField(fields, "end_date"),
+                getIntField(fields, "total_days"),
+                getField(fields, "reason"),
+                getField(fields, "status"),
+                getField(fields, "date_created_at"));
     }
 }
@@ -0,0 +1,310 @@
+package database;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * CacheSnapshot - Warm start for the server caches
+ *
+ * Writes EmployeeDirectory and LeaveBalanceCache entries to a binary file
+ * on shutdown and every hrm.snapshot.intervalMs, and loads them again on the
+ * next start, so a restarted server does not send every first lookup to
+ * Firestore.
+ * - The file is read and written through a memory-mapped buffer
+ * - A CRC32 over the data is checked on load; a half-written or corrupt file
+ *   is ignored (cold start)
+ * - After loading, the entries are compared with Firestore in the background
+ *   (batchGet, by updateTime): changed documents are replaced, deleted ones
+ *   dropped. Snapshots older than hrm.snapshot.maxAgeMinutes are not loaded
+ * - Off unless hrm.snapshot.file is set: the file holds employee personal
+ *   data (names, emails, IC/passport), so it is created owner-only (rw-------)
+ *
+ * File layout: header (magic, format, savedAt, data length, CRC32), then
+ * users (count + 7 nullable strings each), then leave balances (count +
+ * userId + document JSON each).
+ *
+ * Settings (system properties):
+ * - hrm.snapshot.file           Snapshot path, e.g. hrm-cache.snapshot; empty = disabled (default)
+ * - hrm.snapshot.intervalMs     How often the snapshot is rewritten (default 300000)
+ * - hrm.snapshot.maxAgeMinutes  Older snapshots are ignored (default 60)
+ */
+public final class CacheSnapshot {
+
+    private static final String FILE = System.getProperty("hrm.snapshot.file", "");
+    private static final long INTERVAL_MS = Long.getLong("hrm.snapshot.intervalMs", 300_000);
+    private static final long MAX_AGE_MS = Long.getLong("hrm.snapshot.maxAgeMinutes", 60) * 60_000;
+
+    private static final int MAGIC = 0x48524D53; // "HRMS"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+
+    private final Path path;
+    private final EmployeeDirectory directory = EmployeeDirectory.getInstance();
+    private final LeaveBalanceCache balances = LeaveBalanceCache.getInstance();
+    private final FirestoreClient http = FirestoreClient.getInstance();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cache-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private CacheSnapshot(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Snapshot configured by hrm.snapshot.file
+     *
+     * @return Snapshot, or null if disabled
+     */
+    public static CacheSnapshot fromSettings() {
+        return FILE.isEmpty() ? null : new CacheSnapshot(Paths.get(FILE));
+    }
+
+    /**
+     * Load the snapshot (if any), then reconcile it and save periodically in the background
+     */
+    public void start() {
+        long start = System.currentTimeMillis();
+        try {
+            int loaded = load();
+            if (loaded > 0) {
+                System.out.println("✓ Warm start: " + loaded + " cached entries loaded from " + path + " in "
+                        + (System.currentTimeMillis() - start) + "ms");
+                executor.execute(this::reconcile);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Cache snapshot not loaded (" + e.getMessage() + "), starting cold");
+        }
+        if (INTERVAL_MS > 0) {
+            executor.scheduleWithFixedDelay(this::saveQuietly, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop periodic saves and write a final snapshot
+     * Called from the server shutdown hook
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        saveQuietly();
+    }
+
+    // ==================== SAVE ====================
+
+    private synchronized void saveQuietly() {
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Cache snapshot not saved: " + e.getMessage());
+        }
+    }
+
+    private void save() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        java.util.Collection<EmployeeDirectory.Entry> users = directory.entries();
+        out.writeInt(users.size());
+        for (EmployeeDirectory.Entry user : users) {
+            writeString(out, user.getUid());
+            writeString(out, user.getEmail());
+            writeString(out, user.getFirstName());
+            writeString(out, user.getLastName());
+            writeString(out, user.getIcPassport());
+            writeString(out, user.getRole());
+            writeString(out, user.getUpdateTime());
+        }
+
+        Map<String, JsonObject> balanceDocs = balances.entries();
+        out.writeInt(balanceDocs.size());
+        for (Map.Entry<String, JsonObject> entry : balanceDocs.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue().toString());
+        }
+        out.flush();
+        byte[] data = bytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        // Data first, header last: a crash in between leaves a CRC that does not match.
+        // The file is never truncated (not allowed while a mapping of it is open on
+        // some platforms); the header's length says where the data ends.
+        if (!Files.exists(path)) {
+            createOwnerOnly(path);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + data.length);
+            buffer.position(HEADER_BYTES);
+            buffer.put(data);
+            buffer.position(0);
+            buffer.putInt(MAGIC).putInt(FORMAT).putLong(System.currentTimeMillis())
+                    .putInt(data.length).putInt((int) crc.getValue());
+            buffer.force();
+        }
+    }
+
+    private static void createOwnerOnly(Path file) throws IOException {
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system (Windows): falls back to the default ACL of the directory
+            Files.createFile(file);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    // ==================== LOAD ====================
+
+    /**
+     * @return Number of entries restored (0 if there is no usable snapshot)
+     */
+    private int load() throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) < HEADER_BYTES) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IOException("unknown file format");
+            }
+            long savedAt = buffer.getLong();
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("truncated file");
+            }
+            if (System.currentTimeMillis() - savedAt > MAX_AGE_MS) {
+                System.out.println("Cache snapshot is older than " + MAX_AGE_MS / 60_000 + " min, starting cold");
+                return 0;
+            }
+
+            ByteBuffer data = buffer.slice();
+            data.limit(length);
+            CRC32 crc = new CRC32();
+            crc.update(data.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("checksum mismatch");
+            }
+
+            int restored = 0;
+            int userCount = data.getInt();
+            for (int i = 0; i < userCount; i++) {
+                directory.put(new EmployeeDirectory.Entry(readString(data), readString(data), readString(data),
+                        readString(data), readString(data), readString(data), readString(data)));
+                restored++;
+            }
+            int balanceCount = data.getInt();
+            for (int i = 0; i < balanceCount; i++) {
+                String userId = readString(data);
+                balances.put(userId, JsonParser.parseString(readString(data)).getAsJsonObject());
+                restored++;
+            }
+            return restored;
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // ==================== RECONCILE ====================
+
+    /**
+     * Compare restored entries with Firestore (one batchGet per collection)
+     * and replace or drop the ones that changed while the server was down
+     */
+    private void reconcile() {
+        long start = System.currentTimeMillis();
+        int changed = 0;
+        try {
+            Map<String, String> userVersions = new HashMap<>();
+            for (EmployeeDirectory.Entry user : directory.entries()) {
+                userVersions.put(user.getUid(), user.getUpdateTime());
+            }
+            Map<String, JsonObject> freshUsers = http.batchGet("users", userVersions.keySet());
+            for (Map.Entry<String, String> user : userVersions.entrySet()) {
+                JsonObject fresh = freshUsers.get(user.getKey());
+                if (fresh == null) {
+                    directory.evictLocal(user.getKey());
+                    changed++;
+                } else if (!java.util.Objects.equals(user.getValue(), updateTime(fresh))) {
+                    directory.put(fresh);
+                    changed++;
+                }
+            }
+
+            // Balance documents are keyed by their own id, not the userId
+            Map<String, String> balanceOwners = new HashMap<>();
+            Map<String, String> balanceVersions = new HashMap<>();
+            for (Map.Entry<String, JsonObject> entry : balances.entries().entrySet()) {
+                String name = entry.getValue().get("name").getAsString();
+                String documentId = name.substring(name.lastIndexOf('/') + 1);
+                balanceOwners.put(documentId, entry.getKey());
+                balanceVersions.put(documentId, updateTime(entry.getValue()));
+            }
+            List<String> documentIds = new ArrayList<>(balanceOwners.keySet());
+            Map<String, JsonObject> freshBalances = http.batchGet("Leave_Balance", documentIds);
+            for (String documentId : documentIds) {
+                JsonObject fresh = freshBalances.get(documentId);
+                String userId = balanceOwners.get(documentId);
+                if (fresh == null) {
+                    balances.invalidate(userId);
+                    changed++;
+                } else if (!balanceVersions.get(documentId).equals(updateTime(fresh))) {
+                    balances.put(userId, fresh);
+                    changed++;
+                }
+            }
+
+            System.out.println("✓ Warm start reconciled with Firestore: " + changed + " entr"
+                    + (changed == 1 ? "y" : "ies") + " refreshed in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (IOException | RuntimeException e) {
+            // Entries still expire by TTL and are evicted by other nodes' changes
+            System.out.println("Warm start reconcile failed: " + e.getMessage());
+        }
+    }
+
+    private static String updateTime(JsonObject doc) {
+        return doc.has("updateTime") ? doc.get("updateTime").getAsString() : null;
+    }
+}
@@ -0,0 +1,177 @@
+package database;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * ChangeTracker - Incremental change feed for Firestore collections
+ *
+ * AuthService stamps every document it writes with an updated_at timestamp.
+ * For each subscribed collection the tracker polls only the documents with
+ * updated_at past a watermark (ordered by updated_at), hands them to the
+ * subscribers and moves the watermark to the time the poll started. Each
+ * poll costs one small query plus the changed documents, however large the
+ * collection is.
+ * - The query starts hrm.changes.lagMs before the watermark, so writes from
+ *   nodes whose clocks run slightly behind are not missed; documents seen
+ *   again in that overlap are skipped (same updateTime)
+ * - Deletes do not show up here (nothing left to query); AuthService still
+ *   announces them on the InvalidationBus
+ * - Only collections with a subscriber are polled
+ * - Documents written before updated_at existed, or outside the system,
+ *   are not tracked (the caches' TTL still applies to them)
+ *
+ * Settings (system properties):
+ * - hrm.changes.pollMs     Poll interval; 0 = disabled (default 5000)
+ * - hrm.changes.lagMs      Overlap for clock skew between writers (default 5000)
+ * - hrm.changes.batchSize  Max documents per query, paged beyond that (default 200)
+ */
+public final class ChangeTracker {
+
+    /** Timestamp field written by AuthService on every create/update */
+    public static final String UPDATED_AT = "updated_at";
+
+    private static final long POLL_MS = Long.getLong("hrm.changes.pollMs", 5000);
+    private static final long LAG_MS = Long.getLong("hrm.changes.lagMs", 5000);
+    private static final int BATCH_SIZE = Integer.getInteger("hrm.changes.batchSize", 200);
+
+    private static final ChangeTracker INSTANCE = new ChangeTracker();
+
+    private final FirestoreClient http = FirestoreClient.getInstance();
+    private final Map<String, List<Consumer<JsonObject>>> subscribers = new ConcurrentHashMap<>();
+
+    // collection -> start of the last successful poll; everything stamped before
+    // it (minus the lag) has been delivered
+    private final Map<String, Instant> watermarks = new ConcurrentHashMap<>();
+
+    // collection/documentId -> updateTime already delivered (covers the lag overlap)
+    private final Cache<String, String> delivered = CacheBuilder.newBuilder()
+            .expireAfterWrite(Math.max(LAG_MS, POLL_MS) * 3, TimeUnit.MILLISECONDS)
+            .build();
+
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private ScheduledExecutorService poller;
+
+    private ChangeTracker() {
+    }
+
+    public static ChangeTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Receive every changed document of a collection (raw Firestore document)
+     * Called on the tracker thread; keep it short
+     */
+    public void subscribe(String collection, Consumer<JsonObject> listener) {
+        watermarks.putIfAbsent(collection, Instant.now());
+        subscribers.computeIfAbsent(collection, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Start polling (no-op if hrm.changes.pollMs is 0 or already started)
+     */
+    public synchronized void start() {
+        if (POLL_MS <= 0 || poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-tracker");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::pollAll, POLL_MS, POLL_MS, TimeUnit.MILLISECONDS);
+        System.out.println("✓ Change tracking on " + subscribers.keySet() + " (every " + POLL_MS + "ms)");
+    }
+
+    public synchronized void shutdown() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    /**
+     * One-line summary for the server health monitor
+     */
+    public String getStats() {
+        return "polls=" + polls.sum() + "  changes=" + changes.sum() + "  failures=" + failures.sum();
+    }
+
+    // ==================== POLLING ====================
+
+    private void pollAll() {
+        for (String collection : subscribers.keySet()) {
+            try {
+                poll(collection);
+            } catch (java.io.IOException | RuntimeException e) {
+                failures.increment();
+                System.out.println("Change poll failed for " + collection + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void poll(String collection) throws java.io.IOException {
+        polls.increment();
+        Instant pollStart = Instant.now();
+        Instant watermark = watermarks.get(collection);
+        JsonArray cursor = null;
+
+        while (true) {
+            FirestoreQuery query = FirestoreQuery.from(collection)
+                    .where(UPDATED_AT, "GREATER_THAN", timestampValue(watermark.minusMillis(LAG_MS)))
+                    .orderBy(UPDATED_AT, false)
+                    .orderBy("__name__", false)
+                    .limit(BATCH_SIZE);
+            if (cursor != null) {
+                query.startAfter(cursor);
+            }
+            List<JsonObject> docs = http.runQuery(query);
+
+            for (JsonObject doc : docs) {
+                String name = doc.get("name").getAsString();
+                String updateTime = doc.get("updateTime").getAsString();
+                String key = collection + "/" + name.substring(name.lastIndexOf('/') + 1);
+                if (!updateTime.equals(delivered.getIfPresent(key))) {
+                    delivered.put(key, updateTime);
+                    changes.increment();
+                    for (Consumer<JsonObject> listener : subscribers.get(collection)) {
+                        listener.accept(doc);
+                    }
+                }
+            }
+
+            if (docs.size() < BATCH_SIZE) {
+                break;
+            }
+            JsonObject last = docs.get(docs.size() - 1);
+            JsonObject reference = new JsonObject();
+            reference.addProperty("referenceValue", last.get("name").getAsString());
+            cursor = new JsonArray();
+            cursor.add(last.getAsJsonObject("fields").get(UPDATED_AT));
+            cursor.add(reference);
+        }
+        watermarks.put(collection, pollStart);
+    }
+
+    private static JsonObject timestampValue(Instant instant) {
+        JsonObject value = new JsonObject();
+        value.addProperty("timestampValue", instant.toString());
+        return value;
+    }
+}
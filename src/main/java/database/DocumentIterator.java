@@ -0,0 +1,83 @@
+package database;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * DocumentIterator - Lazily pages through a Firestore collection
+ *
+ * Fetches one page of documents at a time (pageSize) and follows
+ * nextPageToken until the collection is exhausted. Only the current page
+ * is held in memory, so scans stay flat no matter how large the
+ * collection grows.
+ *
+ * A failed page fetch is thrown as UncheckedIOException from
+ * hasNext()/next(), since Iterator methods cannot throw checked exceptions.
+ */
+final class DocumentIterator implements Iterator<JsonObject> {
+
+    private final FirestoreClient client;
+    private final String collectionUrl;
+    private final int pageSize;
+
+    private Iterator<JsonElement> page = Collections.emptyIterator();
+    private String nextPageToken;
+    private boolean lastPageFetched = false;
+
+    DocumentIterator(FirestoreClient client, String collectionUrl, int pageSize) {
+        this.client = client;
+        this.collectionUrl = collectionUrl;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        // Loop because Firestore may return an empty page that still carries a token
+        while (!page.hasNext() && !lastPageFetched) {
+            fetchNextPage();
+        }
+        return page.hasNext();
+    }
+
+    @Override
+    public JsonObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next().getAsJsonObject();
+    }
+
+    private void fetchNextPage() {
+        String url = collectionUrl + "?pageSize=" + pageSize;
+        if (nextPageToken != null) {
+            url += "&pageToken=" + URLEncoder.encode(nextPageToken, StandardCharsets.UTF_8);
+        }
+
+        try {
+            FirestoreClient.Response res = client.get(url);
+            if (!res.isSuccess()) {
+                throw new IOException("Firestore page fetch failed (HTTP " + res.getStatusCode() + ")");
+            }
+
+            JsonObject json = JsonParser.parseString(res.getBody()).getAsJsonObject();
+            page = json.has("documents")
+                    ? json.getAsJsonArray("documents").iterator()
+                    : Collections.emptyIterator();
+            nextPageToken = json.has("nextPageToken") ? json.get("nextPageToken").getAsString() : null;
+            lastPageFetched = nextPageToken == null || nextPageToken.isEmpty();
+
+        } catch (IOException e) {
+            lastPageFetched = true;
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package database;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EmailOutbox - Asynchronous, bounded queue for notification emails
+ *
+ * Business methods in AuthService enqueue an email and return immediately;
+ * background workers do the slow SMTP send, so an RMI call never waits on
+ * Transport.send.
+ * - Bounded queue: when full, new emails are dropped (and counted) instead of
+ *   blocking the caller
+ * - Failed sends are retried with exponential backoff, then given up on
+ * - Queue depth, send latency and failures are kept as metrics (getStats)
+ *
+ * Settings (system properties):
+ * - hrm.mail.queueCapacity   Max queued emails (default 500)
+ * - hrm.mail.workers         Sending threads (default 2)
+ * - hrm.mail.maxAttempts     Attempts per email incl. the first (default 3)
+ * - hrm.mail.retryBackoffMs  Delay before the first retry, doubled each time (default 2000)
+ */
+public final class EmailOutbox {
+
+    private static final int QUEUE_CAPACITY = Integer.getInteger("hrm.mail.queueCapacity", 500);
+    private static final int WORKERS = Integer.getInteger("hrm.mail.workers", 2);
+    private static final int MAX_ATTEMPTS = Integer.getInteger("hrm.mail.maxAttempts", 3);
+    private static final long RETRY_BACKOFF_MS = Long.getLong("hrm.mail.retryBackoffMs", 2000);
+
+    private static final EmailOutbox INSTANCE = new EmailOutbox();
+
+    private final BlockingQueue<OutgoingEmail> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ScheduledExecutorService retryScheduler;
+    private volatile boolean accepting = true;
+
+    // Metrics
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder totalSendMs = new LongAdder();
+    private final AtomicLong maxSendMs = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private EmailOutbox() {
+        for (int i = 1; i <= WORKERS; i++) {
+            Thread worker = new Thread(this::runWorker, "email-outbox-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "email-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static EmailOutbox getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queue an email for background delivery
+     *
+     * @return true if queued, false if the outbox is full or shutting down (email dropped)
+     */
+    public boolean enqueue(String toEmail, String subject, String body) {
+        if (toEmail == null || !accepting) {
+            return false;
+        }
+        if (!queue.offer(new OutgoingEmail(toEmail, subject, body))) {
+            dropped.increment();
+            System.err.println("✗ Email outbox full (" + QUEUE_CAPACITY + "), dropped email to: " + toEmail);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queue ONE email for many recipients, sent with all of them as BCC
+     *
+     * @return true if queued, false if the outbox is full or shutting down (email dropped)
+     */
+    public boolean enqueueBcc(java.util.Collection<String> bccEmails, String subject, String body) {
+        if (bccEmails.isEmpty() || !accepting) {
+            return false;
+        }
+        OutgoingEmail email = new OutgoingEmail(null, subject, body);
+        email.bccEmails = new java.util.ArrayList<>(bccEmails);
+        if (!queue.offer(email)) {
+            dropped.increment();
+            System.err.println("✗ Email outbox full (" + QUEUE_CAPACITY + "), dropped email to "
+                    + bccEmails.size() + " BCC recipient(s)");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop accepting new emails and wait (up to timeoutMs) for queued ones to be sent
+     * Called from the server shutdown hook
+     */
+    public void shutdown(long timeoutMs) {
+        accepting = false;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while ((!queue.isEmpty() || inFlight.get() > 0) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        retryScheduler.shutdownNow();
+        if (!queue.isEmpty()) {
+            System.out.println("[MAIL] " + queue.size() + " email(s) not sent before shutdown");
+        }
+    }
+
+    // ==================== METRICS ====================
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * One-line summary for the server health monitor
+     */
+    public String getStats() {
+        long sentCount = sent.sum();
+        long attempts = sentCount + failed.sum() + retried.sum();
+        long avgMs = attempts > 0 ? totalSendMs.sum() / attempts : 0;
+        return String.format("queue=%d/%d  sent=%d  failed=%d  retries=%d  dropped=%d  avgSend=%dms  maxSend=%dms",
+                queue.size(), QUEUE_CAPACITY, sentCount, failed.sum(), retried.sum(), dropped.sum(),
+                avgMs, maxSendMs.get());
+    }
+
+    // ==================== WORKERS ====================
+
+    private void runWorker() {
+        while (true) {
+            OutgoingEmail email;
+            try {
+                email = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            inFlight.incrementAndGet();
+            try {
+                deliver(email);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private void deliver(OutgoingEmail email) {
+        long start = System.currentTimeMillis();
+        boolean ok;
+        try {
+            ok = email.bccEmails != null
+                    ? EmailService.getInstance().sendBccEmail(email.bccEmails, email.subject, email.body)
+                    : EmailService.getInstance().sendEmail(email.toEmail, email.subject, email.body);
+        } catch (RuntimeException e) {
+            ok = false;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        totalSendMs.add(elapsed);
+        maxSendMs.accumulateAndGet(elapsed, Math::max);
+
+        if (ok) {
+            sent.increment();
+            return;
+        }
+
+        email.attempts++;
+        if (email.attempts >= MAX_ATTEMPTS || !accepting) {
+            failed.increment();
+            System.err.println("✗ Giving up on email to " + email.describeRecipients() + " after " + email.attempts
+                    + " attempt(s)");
+            return;
+        }
+
+        // Retry later without holding a worker thread
+        retried.increment();
+        long delay = RETRY_BACKOFF_MS << (email.attempts - 1);
+        retryScheduler.schedule(() -> {
+            if (!queue.offer(email)) {
+                dropped.increment();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * OutgoingEmail - One queued message plus its delivery attempt count
+     */
+    private static final class OutgoingEmail {
+        final String toEmail;
+        final String subject;
+        final String body;
+        java.util.List<String> bccEmails; // Set for one-message-to-many emails (toEmail is then null)
+        int attempts;
+
+        OutgoingEmail(String toEmail, String subject, String body) {
+            this.toEmail = toEmail;
+            this.subject = subject;
+            this.body = body;
+        }
+
+        String describeRecipients() {
+            return bccEmails != null ? bccEmails.size() + " BCC recipient(s)" : toEmail;
+        }
+    }
+}
@@ -1,14 +1,12 @@
 package database;
 
-import java.net.HttpURLConnection;
-import java.net.URI;
-import java.net.URL;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.mail.Authenticator;
 import javax.mail.Message;
+import javax.mail.MessagingException;
 import javax.mail.PasswordAuthentication;
 import javax.mail.Session;
 import javax.mail.Transport;
@@ -20,83 +18,114 @@ import com.google.gson.JsonParser;
 
 /**
  * EmailService - Simple Email Service
- * 
+ *
  * A clean, reusable email service for the HRM system.
  * Sends emails with dynamically provided subject and body content.
- * 
+ *
  * Fetches SMTP configuration from Firebase Firestore for security.
+ *
+ * One shared instance per server (getInstance):
+ * - SMTP config and the mail Session are cached and re-read from Firebase
+ *   every hrm.mail.configRefreshMs (default 600000 = 10 min)
+ * - Connected SMTP Transports are kept in a small pool (hrm.mail.transportPoolSize,
+ *   default 2) and reused, so a burst of emails pays connect + STARTTLS + AUTH once
+ * - When a refresh finds changed settings, the other server nodes are told to
+ *   refresh too (InvalidationBus, key JavaMail/<config id>)
  */
 public class EmailService {
-    
+
     // Firebase Configuration
     private static final String PROJECT_ID = "distributed-system-data";
     private static final String FIRESTORE_URL = "https://firestore.googleapis.com/v1/projects/" + PROJECT_ID
             + "/databases/(default)/documents";
     private static final String JAVAMAIL_CONFIG_ID = "NwT7uYZ7gOe0jDUNPqG1";
-    
-    // SMTP Configuration (fetched from Firebase)
-    private String smtpHost;
-    private String smtpPort;
-    private String username;
-    private String appPassword;
-    
+
+    private static final long CONFIG_REFRESH_MS = Long.getLong("hrm.mail.configRefreshMs", 600_000);
+    private static final int TRANSPORT_POOL_SIZE = Integer.getInteger("hrm.mail.transportPoolSize", 2);
+
+    private static final EmailService INSTANCE = new EmailService();
+
+    // SMTP Configuration (fetched from Firebase), replaced as a whole on refresh
+    private volatile SmtpConfig config;
+    private volatile long configLoadedAt;
+
+    // Idle, already connected transports for the current config
+    private final BlockingQueue<Transport> idleTransports = new ArrayBlockingQueue<>(TRANSPORT_POOL_SIZE);
+
     /**
      * Constructor - Fetches SMTP configuration from Firebase
      */
-    public EmailService() {
-        fetchSmtpConfig();
+    private EmailService() {
+        refreshConfig();
+        InvalidationBus.getInstance().subscribe("JavaMail", id -> refreshConfig());
+    }
+
+    /**
+     * Get the shared email service (one per JVM)
+     */
+    public static EmailService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if an SMTP configuration has been loaded
+     */
+    public boolean isConfigured() {
+        return config != null;
     }
-    
+
     /**
      * Fetch SMTP configuration from Firebase Firestore
      * Reads from JavaMail collection with document ID: NwT7uYZ7gOe0jDUNPqG1
+     * On failure the previously loaded configuration is kept
+     *
+     * @return true if the configuration was (re)loaded
      */
-    private void fetchSmtpConfig() {
+    public synchronized boolean refreshConfig() {
         try {
-            URL url = URI.create(FIRESTORE_URL + "/JavaMail/" + JAVAMAIL_CONFIG_ID).toURL();
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            if (conn.getResponseCode() == 200) {
-                String response = readResponse(conn);
-                
-                // Debug: Print raw response to see what Firebase is returning
-                System.out.println("DEBUG - Raw Firebase response:");
-                System.out.println(response);
-                System.out.println();
-                
-                JsonObject json = JsonParser.parseString(response).getAsJsonObject();
+            FirestoreClient.Response res = FirestoreClient.getInstance()
+                    .get(FIRESTORE_URL + "/JavaMail/" + JAVAMAIL_CONFIG_ID);
+
+            if (res.getStatusCode() == 200) {
+                JsonObject json = JsonParser.parseString(res.getBody()).getAsJsonObject();
                 JsonObject fields = json.getAsJsonObject("fields");
-                
+
                 if (fields != null) {
-                    // Debug: Print available field names
-                    System.out.println("DEBUG - Available fields in Firebase:");
-                    fields.keySet().forEach(key -> System.out.println("  - " + key));
-                    System.out.println();
-                    
                     // Extract SMTP configuration from Firebase (matching Firebase field names)
-                    this.smtpHost = getStringField(fields, "Host");
-                    this.smtpPort = getStringField(fields, "Port");
-                    this.username = getStringField(fields, "Username");
-                    this.appPassword = getStringField(fields, "App Passowrd");  // Note: Matches Firebase field name (typo in Firebase)
-                    
-                    System.out.println("✓ SMTP configuration loaded from Firebase");
-                    System.out.println("  Host: " + this.smtpHost);
-                    System.out.println("  Port: " + this.smtpPort);
-                    System.out.println("  Username: " + this.username);
-                    System.out.println("  Password: " + (this.appPassword != null ? "***" : "NOT FOUND"));
+                    SmtpConfig loaded = new SmtpConfig(
+                            getStringField(fields, "Host"),
+                            getStringField(fields, "Port"),
+                            getStringField(fields, "Username"),
+                            getStringField(fields, "App Passowrd"));  // Note: Matches Firebase field name (typo in Firebase)
+
+                    boolean changed = config == null || !config.sameAs(loaded);
+                    configLoadedAt = System.currentTimeMillis();
+                    if (changed) {
+                        if (config != null) {
+                            InvalidationBus.getInstance().publish("JavaMail", JAVAMAIL_CONFIG_ID);
+                        }
+                        config = loaded;
+                        closeIdleTransports(); // Connected with the old settings
+                        System.out.println("✓ SMTP configuration loaded from Firebase");
+                        System.out.println("  Host: " + loaded.host);
+                        System.out.println("  Port: " + loaded.port);
+                        System.out.println("  Username: " + loaded.username);
+                        System.out.println("  Password: " + (loaded.appPassword != null ? "***" : "NOT FOUND"));
+                    }
+                    return true;
                 } else {
                     System.err.println("✗ Failed to load SMTP configuration: fields not found");
                 }
             } else {
-                System.err.println("✗ Failed to fetch SMTP config from Firebase (HTTP " + conn.getResponseCode() + ")");
+                System.err.println("✗ Failed to fetch SMTP config from Firebase (HTTP " + res.getStatusCode() + ")");
             }
 
         } catch (Exception e) {
             System.err.println("✗ Failed to load email service configuration");
         }
+        return false;
     }
-    
+
     /**
      * Helper method to extract string value from Firestore field
      */
@@ -106,63 +135,159 @@ public class EmailService {
         }
         return null;
     }
-    
-    /**
-     * Helper method to read HTTP response
-     */
-    private String readResponse(HttpURLConnection conn) throws Exception {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-        StringBuilder response = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            response.append(line);
-        }
-        reader.close();
-        return response.toString();
-    }
-    
+
     /**
      * Send an email with custom subject and body
-     * 
+     *
      * @param toEmail Recipient email address
      * @param subject Email subject line
      * @param body Email body content
      * @return true if email sent successfully, false otherwise
      */
     public boolean sendEmail(String toEmail, String subject, String body) {
+        return send(toEmail, null, subject, body);
+    }
+
+    /**
+     * Send ONE email to many people without exposing their addresses
+     * The message is addressed to the system mailbox itself and every
+     * recipient gets it as BCC
+     *
+     * @param bccEmails Recipient email addresses
+     * @param subject Email subject line
+     * @param body Email body content
+     * @return true if email sent successfully, false otherwise
+     */
+    public boolean sendBccEmail(java.util.Collection<String> bccEmails, String subject, String body) {
+        if (bccEmails.isEmpty()) {
+            return true;
+        }
+        return send(null, String.join(",", bccEmails), subject, body);
+    }
+
+    private boolean send(String toEmail, String bccEmails, String subject, String body) {
+        String recipients = toEmail != null ? toEmail : bccEmails.split(",").length + " BCC recipient(s)";
+        if (System.currentTimeMillis() - configLoadedAt > CONFIG_REFRESH_MS) {
+            refreshConfig();
+        }
+        SmtpConfig smtp = config;
+        if (smtp == null) {
+            System.err.println("✗ Failed to send email to: " + recipients + " (no SMTP configuration)");
+            return false;
+        }
+
+        Transport transport = null;
         try {
+            // Create message
+            Message message = new MimeMessage(smtp.session);
+            message.setFrom(new InternetAddress(smtp.username, "BHEL HRM System"));
+            message.setRecipients(Message.RecipientType.TO,
+                    InternetAddress.parse(toEmail != null ? toEmail : smtp.username));
+            if (bccEmails != null) {
+                message.setRecipients(Message.RecipientType.BCC, InternetAddress.parse(bccEmails));
+            }
+            message.setSubject(subject);
+            message.setText(body);
+            message.saveChanges();
+
+            // Send email over a pooled connection
+            transport = borrowTransport(smtp);
+            transport.sendMessage(message, message.getAllRecipients());
+            releaseTransport(smtp, transport);
+            System.out.println("✓ Email sent successfully to: " + recipients);
+            return true;
+
+        } catch (Exception e) {
+            closeQuietly(transport); // Connection state unknown, do not reuse
+            System.err.println("✗ Failed to send email to: " + recipients);
+            System.err.println("Error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // ==================== TRANSPORT POOL ====================
+
+    /**
+     * Take an idle connected transport, or open a new one
+     * Idle connections the server has since dropped are discarded
+     */
+    private Transport borrowTransport(SmtpConfig smtp) throws MessagingException {
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            if (transport.isConnected()) {
+                return transport;
+            }
+            closeQuietly(transport);
+        }
+        transport = smtp.session.getTransport("smtp");
+        transport.connect(smtp.host, Integer.parseInt(smtp.port), smtp.username, smtp.appPassword);
+        return transport;
+    }
+
+    /**
+     * Return a transport after a successful send; closed if the pool is full
+     * or the configuration changed meanwhile
+     */
+    private void releaseTransport(SmtpConfig smtp, Transport transport) {
+        if (smtp != config || !idleTransports.offer(transport)) {
+            closeQuietly(transport);
+        }
+    }
+
+    private void closeIdleTransports() {
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            closeQuietly(transport);
+        }
+    }
+
+    private static void closeQuietly(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException ignored) {
+            }
+        }
+    }
+
+    /**
+     * SmtpConfig - One loaded SMTP configuration and the mail Session built from it
+     */
+    private static final class SmtpConfig {
+        final String host;
+        final String port;
+        final String username;
+        final String appPassword;
+        final Session session;
+
+        SmtpConfig(String host, String port, String username, String appPassword) {
+            this.host = host;
+            this.port = port;
+            this.username = username;
+            this.appPassword = appPassword;
+
             // SMTP Configuration (using values from Firebase)
             Properties props = new Properties();
             props.put("mail.smtp.auth", "true");
             props.put("mail.smtp.starttls.enable", "true");
-            props.put("mail.smtp.host", smtpHost);
-            props.put("mail.smtp.port", smtpPort);
+            props.put("mail.smtp.host", host);
+            props.put("mail.smtp.port", port);
             props.put("mail.smtp.ssl.protocols", "TLSv1.2");
-            
+
             // Create session with authentication
-            Session session = Session.getInstance(props, new Authenticator() {
+            this.session = Session.getInstance(props, new Authenticator() {
                 @Override
                 protected PasswordAuthentication getPasswordAuthentication() {
                     return new PasswordAuthentication(username, appPassword);
                 }
             });
-            
-            // Create message
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(username, "BHEL HRM System"));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
-            message.setSubject(subject);
-            message.setText(body);
-            
-            // Send email
-            Transport.send(message);
-            System.out.println("✓ Email sent successfully to: " + toEmail);
-            return true;
-            
-        } catch (Exception e) {
-            System.err.println("✗ Failed to send email to: " + toEmail);
-            System.err.println("Error: " + e.getMessage());
-            return false;
+        }
+
+        boolean sameAs(SmtpConfig other) {
+            return java.util.Objects.equals(host, other.host)
+                    && java.util.Objects.equals(port, other.port)
+                    && java.util.Objects.equals(username, other.username)
+                    && java.util.Objects.equals(appPassword, other.appPassword);
         }
     }
 }
@@ -0,0 +1,316 @@
+package database;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmployeeDirectory - Server-wide cache of /users documents
+ *
+ * Maps uid -> name / email / role / IC so that listing and notification
+ * code does not fetch the same /users/{uid} document once per row.
+ * - Entries expire after a TTL (hrm.cache.directory.ttlSeconds, default 300)
+ * - Size is bounded with LRU eviction (hrm.cache.directory.maxEntries, default 10000)
+ * - AuthService invalidates an entry whenever that user is added, updated or deleted
+ * - preload() resolves a whole result set's users with batchGet
+ * - With several server nodes, invalidate() is also sent to the other nodes
+ *   (InvalidationBus), and their changes evict entries here
+ * - Changed /users documents reported by ChangeTracker replace cached entries
+ *
+ * Also keeps the set of HR email addresses used for HR notifications. It is
+ * loaded with one /users scan, then kept current by AuthService's user
+ * mutations (updateHrMembership / removeHrMember) and fully reloaded every
+ * hrm.cache.hrRecipients.reloadSeconds (default 3600) to pick up edits made
+ * outside the system.
+ */
+public final class EmployeeDirectory {
+
+    private static final long TTL_SECONDS = Long.getLong("hrm.cache.directory.ttlSeconds", 300);
+    private static final long MAX_ENTRIES = Long.getLong("hrm.cache.directory.maxEntries", 10_000);
+    private static final long HR_RELOAD_MS = Long.getLong("hrm.cache.hrRecipients.reloadSeconds", 3600) * 1000;
+
+    private static final EmployeeDirectory INSTANCE = new EmployeeDirectory();
+
+    private final Cache<String, Entry> cache = CacheBuilder.newBuilder()
+            .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+            .maximumSize(MAX_ENTRIES)
+            .build();
+
+    private final FirestoreClient http = FirestoreClient.getInstance();
+
+    // uid -> email of every HR user
+    private final Map<String, String> hrEmails = new ConcurrentHashMap<>();
+    private volatile long hrLoadedAt = 0;
+
+    private final InvalidationBus invalidations = InvalidationBus.getInstance();
+
+    private EmployeeDirectory() {
+        // Another node changed this user: drop it, and re-read the HR set on next use
+        // (the user may have joined or left HR)
+        invalidations.subscribe("users", uid -> {
+            cache.invalidate(uid);
+            hrLoadedAt = 0;
+        });
+        // A user changed (on any node): refresh the entry if cached, and the HR set
+        ChangeTracker.getInstance().subscribe("users", doc -> {
+            Entry entry = Entry.fromDocument(doc);
+            if (cache.getIfPresent(entry.getUid()) != null) {
+                cache.put(entry.getUid(), entry);
+            }
+            if (hrLoadedAt > 0) {
+                updateHrMembership(entry.getUid(), entry.getEmail(), entry.getRole());
+            }
+        });
+    }
+
+    public static EmployeeDirectory getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Look up a user, reading /users/{uid} from Firestore only on a cache miss
+     *
+     * @param uid User's UID
+     * @return Cached entry, or null if the user does not exist or could not be read
+     */
+    public Entry lookup(String uid) {
+        if (uid == null) {
+            return null;
+        }
+        Entry cached = cache.getIfPresent(uid);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            FirestoreClient.Response res = http.get(FirestoreClient.DOCUMENTS_URL + "/users/" + uid);
+            if (res.getStatusCode() == 200) {
+                Entry entry = Entry.fromDocument(JsonParser.parseString(res.getBody()).getAsJsonObject());
+                cache.put(uid, entry);
+                return entry;
+            }
+        } catch (java.io.IOException e) {
+            System.out.println("Directory lookup failed for user " + uid + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Make sure every given user is cached, fetching all misses with one
+     * batchGet (chunked) instead of one GET per user
+     * Call this before rendering a result set that shows many employees
+     *
+     * @param uids User ids appearing in the result set (duplicates/nulls allowed)
+     */
+    public void preload(Collection<String> uids) {
+        Set<String> missing = new HashSet<>();
+        for (String uid : uids) {
+            if (uid != null && !"N/A".equals(uid) && cache.getIfPresent(uid) == null) {
+                missing.add(uid);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (JsonObject doc : http.batchGet("users", missing).values()) {
+                put(doc);
+            }
+        } catch (java.io.IOException e) {
+            // Not fatal: lookup() falls back to single GETs
+            System.out.println("Directory preload failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Store a /users document that was already read (e.g. during a full scan)
+     */
+    public void put(JsonObject userDocument) {
+        Entry entry = Entry.fromDocument(userDocument);
+        cache.put(entry.getUid(), entry);
+    }
+
+    /**
+     * Drop a user so the next lookup reads fresh data from Firestore
+     * Other server nodes are told to drop it too
+     */
+    public void invalidate(String uid) {
+        if (uid != null) {
+            cache.invalidate(uid);
+            invalidations.publish("users", uid);
+        }
+    }
+
+    // ==================== HR RECIPIENTS ====================
+
+    /**
+     * Email addresses of all HR users (loaded on first use)
+     *
+     * @return Snapshot of HR email addresses (empty if none or the load failed)
+     */
+    public Collection<String> getHrEmails() {
+        if (System.currentTimeMillis() - hrLoadedAt > HR_RELOAD_MS) {
+            reloadHrEmails();
+        }
+        return new ArrayList<>(hrEmails.values());
+    }
+
+    /**
+     * Record a user's current role/email after it was added or changed
+     * Adds, updates or removes the user from the HR recipient set
+     */
+    public void updateHrMembership(String uid, String email, String role) {
+        if ("hr".equalsIgnoreCase(role) && email != null && !email.equals("N/A")) {
+            hrEmails.put(uid, email);
+        } else {
+            hrEmails.remove(uid);
+        }
+    }
+
+    /**
+     * Drop a deleted user from the HR recipient set
+     */
+    public void removeHrMember(String uid) {
+        hrEmails.remove(uid);
+    }
+
+    private synchronized void reloadHrEmails() {
+        if (System.currentTimeMillis() - hrLoadedAt <= HR_RELOAD_MS) {
+            return; // Another thread just reloaded
+        }
+        try {
+            Map<String, String> loaded = new HashMap<>();
+            for (JsonObject doc : http.listDocuments(FirestoreClient.DOCUMENTS_URL + "/users")) {
+                put(doc); // Warm the directory while we have the document
+                Entry user = Entry.fromDocument(doc);
+                if ("hr".equalsIgnoreCase(user.getRole()) && user.getEmail() != null) {
+                    loaded.put(user.getUid(), user.getEmail());
+                }
+            }
+            hrEmails.keySet().retainAll(loaded.keySet());
+            hrEmails.putAll(loaded);
+            hrLoadedAt = System.currentTimeMillis();
+
+            if (loaded.isEmpty()) {
+                System.out.println("Warning: No HR users found in database");
+            } else {
+                System.out.println("Found " + loaded.size() + " HR user(s): " + loaded.values());
+            }
+        } catch (java.io.UncheckedIOException e) {
+            // Keep the previous set; try again on next use
+            System.out.println("Error getting HR emails: " + e.getMessage());
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Current entries, for CacheSnapshot
+     */
+    Collection<Entry> entries() {
+        return new ArrayList<>(cache.asMap().values());
+    }
+
+    /**
+     * Store an entry restored from a snapshot
+     */
+    void put(Entry entry) {
+        cache.put(entry.getUid(), entry);
+    }
+
+    /**
+     * Drop a user on this node only (no InvalidationBus message)
+     */
+    void evictLocal(String uid) {
+        cache.invalidate(uid);
+    }
+
+    /**
+     * Entry - Immutable snapshot of one /users document
+     * Missing fields are stored as null
+     */
+    public static final class Entry {
+        private final String uid;
+        private final String email;
+        private final String firstName;
+        private final String lastName;
+        private final String icPassport;
+        private final String role;
+        private final String updateTime;
+
+        Entry(String uid, String email, String firstName, String lastName, String icPassport, String role,
+                String updateTime) {
+            this.uid = uid;
+            this.email = email;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.icPassport = icPassport;
+            this.role = role;
+            this.updateTime = updateTime;
+        }
+
+        static Entry fromDocument(JsonObject doc) {
+            String name = doc.get("name").getAsString();
+            JsonObject fields = doc.getAsJsonObject("fields");
+            return new Entry(
+                    name.substring(name.lastIndexOf("/") + 1),
+                    stringField(fields, "email"),
+                    stringField(fields, "first_name"),
+                    stringField(fields, "last_name"),
+                    stringField(fields, "ic_passport"),
+                    stringField(fields, "role"),
+                    doc.has("updateTime") ? doc.get("updateTime").getAsString() : null);
+        }
+
+        private static String stringField(JsonObject fields, String name) {
+            if (fields != null && fields.has(name) && fields.getAsJsonObject(name).has("stringValue")) {
+                return fields.getAsJsonObject(name).get("stringValue").getAsString();
+            }
+            return null;
+        }
+
+        public String getUid() {
+            return uid;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public String getIcPassport() {
+            return icPassport;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        /**
+         * Firestore updateTime of the document this entry was built from
+         */
+        public String getUpdateTime() {
+            return updateTime;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package database;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * FirestoreClient - Shared HTTP transport for all Firebase REST calls
+ *
+ * Every Firestore and Identity Toolkit request made by AuthService and
+ * EmailService goes through ONE long-lived java.net.http.HttpClient:
+ * - Connections are kept alive and reused (no TLS handshake per request)
+ * - HTTP/2 is negotiated, so concurrent requests share a connection
+ * - In-flight requests are bounded so bursts cannot open unlimited sockets
+ * - Every request has a connect timeout and a request timeout
+ * - Identical reads (GET, runQuery, batchGet) made at the same time share ONE
+ *   request and its response (single flight). A caller never joins a read
+ *   that started before a write made through this client finished, so a
+ *   caller always sees its own writes
+ *
+ * Settings (system properties, e.g. -Dhrm.http.requestTimeoutMs=20000):
+ * - hrm.http.connectTimeoutMs  Connect timeout (default 5000)
+ * - hrm.http.requestTimeoutMs  Per-request timeout (default 15000)
+ * - hrm.http.maxConnections    Max pooled connections / in-flight requests (default 16)
+ * - hrm.firestore.pageSize     Documents per page for collection scans (default 300)
+ * - hrm.firestore.batchGetSize Document ids per batchGet request (default 100)
+ * - hrm.firestore.coalesceReads Share concurrent identical reads (default true)
+ */
+public final class FirestoreClient {
+
+    // Firestore REST endpoints (same project as AuthService / EmailService)
+    private static final String PROJECT_ID = "distributed-system-data";
+    private static final String DOCUMENTS_PATH = "projects/" + PROJECT_ID + "/databases/(default)/documents";
+    public static final String DOCUMENTS_URL = "https://firestore.googleapis.com/v1/" + DOCUMENTS_PATH;
+
+    private static final int CONNECT_TIMEOUT_MS = Integer.getInteger("hrm.http.connectTimeoutMs", 5000);
+    private static final int REQUEST_TIMEOUT_MS = Integer.getInteger("hrm.http.requestTimeoutMs", 15000);
+    private static final int MAX_CONNECTIONS = Integer.getInteger("hrm.http.maxConnections", 16);
+    private static final int DEFAULT_PAGE_SIZE = Integer.getInteger("hrm.firestore.pageSize", 300);
+    private static final int BATCH_GET_SIZE = Integer.getInteger("hrm.firestore.batchGetSize", 100);
+    private static final boolean COALESCE_READS =
+            Boolean.parseBoolean(System.getProperty("hrm.firestore.coalesceReads", "true"));
+
+    private static final FirestoreClient INSTANCE = new FirestoreClient();
+
+    private final HttpClient httpClient;
+    private final Semaphore permits;
+
+    // Single flight: request key -> the read currently fetching it
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    // Bumped after every write; reads only join flights started in the same epoch
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final LongAdder coalesced = new LongAdder();
+
+    private FirestoreClient() {
+        // The JDK pool size is read once when the first HttpClient is built
+        if (System.getProperty("jdk.httpclient.connectionPoolSize") == null) {
+            System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(MAX_CONNECTIONS));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, MAX_CONNECTIONS / 2), r -> {
+            Thread t = new Thread(r, "firestore-http");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MS))
+                .executor(executor)
+                .build();
+        this.permits = new Semaphore(MAX_CONNECTIONS);
+    }
+
+    /**
+     * Get the shared client (one per JVM)
+     */
+    public static FirestoreClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Open the HTTP/2 connection to Firestore ahead of the first request
+     * (DNS + TLS handshake), with one small read
+     *
+     * @return true if Firestore answered
+     */
+    public boolean warmUp() throws IOException {
+        return get(DOCUMENTS_URL + "/users?pageSize=1").isSuccess();
+    }
+
+    // ==================== HTTP METHODS ====================
+
+    public Response get(String url) throws IOException {
+        return read("GET " + url, () -> send(newRequest(url).GET().build()));
+    }
+
+    public Response post(String url, String jsonBody) throws IOException {
+        IoCall call = () -> send(newRequest(url)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+                .build());
+        if (url.endsWith(":runQuery") || url.endsWith(":batchGet")) {
+            return read("POST " + url + " " + jsonBody, call); // Reads sent as POST
+        }
+        return write(call);
+    }
+
+    public Response patch(String url, String jsonBody) throws IOException {
+        return write(() -> send(newRequest(url)
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+                .build()));
+    }
+
+    public Response delete(String url) throws IOException {
+        return write(() -> send(newRequest(url).DELETE().build()));
+    }
+
+    /**
+     * One-line summary for the server health monitor
+     */
+    public String getStats() {
+        return "inFlightReads=" + inFlight.size() + "  coalescedReads=" + coalesced.sum();
+    }
+
+    // ==================== PARTIAL UPDATES ====================
+
+    /**
+     * Update only the given fields of an existing document
+     * Sends ONE PATCH with updateMask.fieldPaths for each field, so fields not
+     * listed are left untouched and the document never disappears.
+     * The write fails with 404 if the document does not exist (it is not created).
+     *
+     * @param documentUrl Full REST URL of the document (e.g. .../documents/Leave_Request/{id})
+     * @param fields      Firestore typed fields to write, e.g. {"status": {"stringValue": "Approved"}}
+     */
+    public Response updateFields(String documentUrl, JsonObject fields) throws IOException {
+        StringBuilder url = new StringBuilder(documentUrl).append("?currentDocument.exists=true");
+        for (String fieldPath : fields.keySet()) {
+            url.append("&updateMask.fieldPaths=").append(URLEncoder.encode(fieldPath, StandardCharsets.UTF_8));
+        }
+
+        JsonObject doc = new JsonObject();
+        doc.add("fields", fields);
+        return patch(url.toString(), doc.toString());
+    }
+
+    // ==================== COLLECTION SCANS ====================
+
+    /**
+     * Stream every document of a collection, one page at a time
+     * Pages are fetched lazily as the caller iterates, following nextPageToken
+     *
+     * @param collectionUrl Full REST URL of the collection (e.g. .../documents/users)
+     * @param pageSize      Documents per page request
+     * @return Iterable of raw Firestore documents (name, fields, createTime, updateTime)
+     */
+    public Iterable<JsonObject> listDocuments(String collectionUrl, int pageSize) {
+        return () -> new DocumentIterator(this, collectionUrl, pageSize);
+    }
+
+    /**
+     * Same as listDocuments(url, pageSize) using hrm.firestore.pageSize (default 300)
+     */
+    public Iterable<JsonObject> listDocuments(String collectionUrl) {
+        return listDocuments(collectionUrl, DEFAULT_PAGE_SIZE);
+    }
+
+    // ==================== STRUCTURED QUERIES ====================
+
+    /**
+     * Run a structured query (documents:runQuery) and return only the matching documents
+     * Cost is proportional to the number of matches, not the collection size
+     *
+     * @param query Filters / ordering / limit to push down to Firestore
+     * @return Matching raw Firestore documents (empty list if none)
+     * @throws IOException if the request fails or Firestore returns an error
+     */
+    public List<JsonObject> runQuery(FirestoreQuery query) throws IOException {
+        Response res = post(DOCUMENTS_URL + ":runQuery", query.toRequestBody().toString());
+        if (!res.isSuccess()) {
+            throw new IOException("Firestore query failed (HTTP " + res.getStatusCode() + ")");
+        }
+
+        // Response is an array of {document, readTime}; entries without "document" carry no result
+        List<JsonObject> documents = new ArrayList<>();
+        for (JsonElement element : JsonParser.parseString(res.getBody()).getAsJsonArray()) {
+            JsonObject entry = element.getAsJsonObject();
+            if (entry.has("document")) {
+                documents.add(entry.getAsJsonObject("document"));
+            }
+        }
+        return documents;
+    }
+
+    // ==================== BATCH READS ====================
+
+    /**
+     * Fetch many documents of one collection by id using documents:batchGet
+     * Ids are sent in chunks of hrm.firestore.batchGetSize, so N ids cost
+     * ceil(N / chunk) round trips instead of N
+     *
+     * @param collectionId Top-level collection (e.g. "users")
+     * @param documentIds  Document ids to fetch (duplicates are ignored)
+     * @return Raw Firestore documents keyed by document id; missing ids are absent
+     * @throws IOException if any chunk fails
+     */
+    public Map<String, JsonObject> batchGet(String collectionId, Collection<String> documentIds) throws IOException {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(documentIds));
+        Map<String, JsonObject> found = new HashMap<>();
+
+        for (int start = 0; start < ids.size(); start += BATCH_GET_SIZE) {
+            JsonArray names = new JsonArray();
+            for (String id : ids.subList(start, Math.min(start + BATCH_GET_SIZE, ids.size()))) {
+                names.add(documentName(collectionId, id));
+            }
+            JsonObject body = new JsonObject();
+            body.add("documents", names);
+
+            Response res = post(DOCUMENTS_URL + ":batchGet", body.toString());
+            if (!res.isSuccess()) {
+                throw new IOException("Firestore batchGet failed (HTTP " + res.getStatusCode() + ")");
+            }
+
+            // Response is an array of {found: document} or {missing: name}, in any order
+            for (JsonElement element : JsonParser.parseString(res.getBody()).getAsJsonArray()) {
+                JsonObject entry = element.getAsJsonObject();
+                if (entry.has("found")) {
+                    JsonObject doc = entry.getAsJsonObject("found");
+                    String name = doc.get("name").getAsString();
+                    found.put(name.substring(name.lastIndexOf('/') + 1), doc);
+                }
+            }
+        }
+        return found;
+    }
+
+    // ==================== ATOMIC COMMITS ====================
+
+    /**
+     * Apply several writes atomically in ONE request (documents:commit)
+     * Either every write is applied or none is
+     *
+     * @param writes Writes to apply, in order
+     * @return Response; on success the body holds writeResults (incl. transformResults)
+     */
+    public Response commit(FirestoreWrite... writes) throws IOException {
+        JsonArray array = new JsonArray();
+        for (FirestoreWrite write : writes) {
+            array.add(write.toJson());
+        }
+        JsonObject body = new JsonObject();
+        body.add("writes", array);
+        return post(DOCUMENTS_URL + ":commit", body.toString());
+    }
+
+    /**
+     * @return true if a write/commit was refused because a precondition
+     *         (updateTime / exists) no longer held, i.e. someone else changed the document
+     */
+    public static boolean isPreconditionFailure(Response res) {
+        return !res.isSuccess() && res.getBody().contains("FAILED_PRECONDITION");
+    }
+
+    /**
+     * Full resource name of a document, as used inside batchGet / commit bodies
+     * e.g. projects/{project}/databases/(default)/documents/users/{uid}
+     */
+    public static String documentName(String collectionId, String documentId) {
+        return DOCUMENTS_PATH + "/" + collectionId + "/" + documentId;
+    }
+
+    // ==================== SINGLE FLIGHT ====================
+
+    /**
+     * Run a read, or wait for an identical one already in flight and share its result
+     */
+    private Response read(String key, IoCall call) throws IOException {
+        if (!COALESCE_READS) {
+            return call.run();
+        }
+        long epoch = writeEpoch.get();
+        Flight mine = new Flight(epoch);
+        Flight flight = inFlight.compute(key,
+                (k, current) -> current != null && current.epoch == epoch ? current : mine);
+        if (flight != mine) {
+            coalesced.increment();
+            return flight.await();
+        }
+
+        try {
+            Response response = call.run();
+            mine.result.complete(response);
+            return response;
+        } catch (Throwable e) {
+            // Any failure (incl. Errors) is handed to the waiting callers, or they would hang
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Run a write; reads started before it finished are not joined afterwards
+     */
+    private Response write(IoCall call) throws IOException {
+        try {
+            return call.run();
+        } finally {
+            writeEpoch.incrementAndGet();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoCall {
+        Response run() throws IOException;
+    }
+
+    /**
+     * Flight - One shared read and the write epoch it started in
+     */
+    private static final class Flight {
+        final long epoch;
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+
+        Flight(long epoch) {
+            this.epoch = epoch;
+        }
+
+        Response await() throws IOException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a shared read", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause.getMessage(), cause);
+            }
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    private HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(REQUEST_TIMEOUT_MS));
+    }
+
+    private Response send(HttpRequest request) throws IOException {
+        try {
+            permits.acquire();
+            try {
+                HttpResponse<String> response = httpClient.send(request,
+                        HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                return new Response(response.statusCode(), response.body());
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request interrupted: " + request.method() + " " + request.uri().getPath(), e);
+        }
+    }
+
+    /**
+     * Response - HTTP status code plus the full response body
+     * (the body holds the error payload when the call did not succeed)
+     */
+    public static final class Response {
+        private final int statusCode;
+        private final String body;
+
+        Response(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body == null ? "" : body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * @return true for any 2xx status code
+         */
+        public boolean isSuccess() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package database;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * FirestoreQuery - Builder for Firestore REST structured queries
+ *
+ * Lets callers push filters down to Firestore (documents:runQuery) instead of
+ * downloading a whole collection and filtering in Java.
+ *
+ * Example:
+ *   FirestoreQuery.from("Leave_Balance").whereEqualTo("userid", uid).limit(1)
+ *
+ * Note: equality filters on several fields work with Firestore's automatic
+ * single-field indexes; combining a filter with orderBy on a DIFFERENT field
+ * needs a composite index in the Firebase console.
+ */
+public final class FirestoreQuery {
+
+    private final String collectionId;
+    private final JsonArray filters = new JsonArray();
+    private final JsonArray orderBy = new JsonArray();
+    private JsonArray startAfter;
+    private int limit = -1;
+
+    private FirestoreQuery(String collectionId) {
+        this.collectionId = collectionId;
+    }
+
+    /**
+     * Start a query on a top-level collection (e.g. "Payroll_Salary")
+     */
+    public static FirestoreQuery from(String collectionId) {
+        return new FirestoreQuery(collectionId);
+    }
+
+    /**
+     * Add an equality filter on a string field (ANDed with other filters)
+     */
+    public FirestoreQuery whereEqualTo(String field, String value) {
+        return where(field, "EQUAL", stringValue(value));
+    }
+
+    /**
+     * Add a filter with any Firestore operator
+     * (EQUAL, NOT_EQUAL, LESS_THAN, GREATER_THAN, ...) and a typed value
+     * e.g. {"stringValue": "Pending"}
+     */
+    public FirestoreQuery where(String field, String op, JsonObject value) {
+        JsonObject fieldFilter = new JsonObject();
+        fieldFilter.add("field", fieldReference(field));
+        fieldFilter.addProperty("op", op);
+        fieldFilter.add("value", value);
+
+        JsonObject filter = new JsonObject();
+        filter.add("fieldFilter", fieldFilter);
+        filters.add(filter);
+        return this;
+    }
+
+    public FirestoreQuery orderBy(String field, boolean descending) {
+        JsonObject order = new JsonObject();
+        order.add("field", fieldReference(field));
+        order.addProperty("direction", descending ? "DESCENDING" : "ASCENDING");
+        orderBy.add(order);
+        return this;
+    }
+
+    /**
+     * Resume after the document whose orderBy values are given (cursor paging)
+     * One value per orderBy clause, in the same order, e.g.
+     * [{"stringValue": "2026"}, {"referenceValue": "projects/.../Payroll_Salary/p1"}]
+     */
+    public FirestoreQuery startAfter(JsonArray orderByValues) {
+        this.startAfter = orderByValues;
+        return this;
+    }
+
+    public FirestoreQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Build the request body for documents:runQuery
+     */
+    JsonObject toRequestBody() {
+        JsonObject from = new JsonObject();
+        from.addProperty("collectionId", collectionId);
+        JsonArray fromArray = new JsonArray();
+        fromArray.add(from);
+
+        JsonObject structuredQuery = new JsonObject();
+        structuredQuery.add("from", fromArray);
+
+        if (filters.size() == 1) {
+            structuredQuery.add("where", filters.get(0));
+        } else if (filters.size() > 1) {
+            JsonObject compositeFilter = new JsonObject();
+            compositeFilter.addProperty("op", "AND");
+            compositeFilter.add("filters", filters);
+            JsonObject where = new JsonObject();
+            where.add("compositeFilter", compositeFilter);
+            structuredQuery.add("where", where);
+        }
+
+        if (orderBy.size() > 0) {
+            structuredQuery.add("orderBy", orderBy);
+        }
+        if (startAfter != null) {
+            JsonObject cursor = new JsonObject();
+            cursor.add("values", startAfter);
+            cursor.addProperty("before", false); // Start strictly after these values
+            structuredQuery.add("startAt", cursor);
+        }
+        if (limit > 0) {
+            structuredQuery.addProperty("limit", limit);
+        }
+
+        JsonObject body = new JsonObject();
+        body.add("structuredQuery", structuredQuery);
+        return body;
+    }
+
+    // ==================== HELPERS ====================
+
+    private static JsonObject fieldReference(String field) {
+        JsonObject ref = new JsonObject();
+        ref.addProperty("fieldPath", field);
+        return ref;
+    }
+
+    private static JsonObject stringValue(String value) {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("stringValue", value);
+        return obj;
+    }
+}
@@ -0,0 +1,124 @@
+package database;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * FirestoreWrite - One write inside a Firestore documents:commit request
+ *
+ * Several writes sent together with FirestoreClient.commit() are applied
+ * atomically: either all of them succeed or none do.
+ *
+ * Example (approve a leave request and deduct 3 days in one round trip):
+ *   FirestoreWrite.update("Leave_Request", leaveId, fields).ifUpdateTime(requestUpdateTime)
+ *   FirestoreWrite.increment("Leave_Balance", balanceId, "annual_leave", -3).ifUpdateTime(balanceUpdateTime)
+ *
+ * A precondition that does not hold makes the whole commit fail with
+ * FAILED_PRECONDITION (see FirestoreClient.isPreconditionFailure).
+ */
+public final class FirestoreWrite {
+
+    private final JsonObject write = new JsonObject();
+
+    private FirestoreWrite() {
+    }
+
+    /**
+     * Set the given fields of a document, leaving all other fields untouched
+     *
+     * @param fields Firestore typed fields, e.g. {"status": {"stringValue": "Approved"}}
+     */
+    public static FirestoreWrite update(String collectionId, String documentId, JsonObject fields) {
+        JsonObject doc = new JsonObject();
+        doc.addProperty("name", FirestoreClient.documentName(collectionId, documentId));
+        doc.add("fields", fields);
+
+        JsonArray fieldPaths = new JsonArray();
+        fields.keySet().forEach(fieldPaths::add);
+        JsonObject mask = new JsonObject();
+        mask.add("fieldPaths", fieldPaths);
+
+        FirestoreWrite w = new FirestoreWrite();
+        w.write.add("update", doc);
+        w.write.add("updateMask", mask);
+        return w;
+    }
+
+    /**
+     * Add delta (may be negative) to an integer field on the server side
+     * No read of the current value is needed, so concurrent increments never get lost
+     */
+    public static FirestoreWrite increment(String collectionId, String documentId, String fieldPath, long delta) {
+        JsonObject amount = new JsonObject();
+        amount.addProperty("integerValue", String.valueOf(delta));
+
+        JsonObject fieldTransform = new JsonObject();
+        fieldTransform.addProperty("fieldPath", fieldPath);
+        fieldTransform.add("increment", amount);
+        JsonArray fieldTransforms = new JsonArray();
+        fieldTransforms.add(fieldTransform);
+
+        JsonObject transform = new JsonObject();
+        transform.addProperty("document", FirestoreClient.documentName(collectionId, documentId));
+        transform.add("fieldTransforms", fieldTransforms);
+
+        FirestoreWrite w = new FirestoreWrite();
+        w.write.add("transform", transform);
+        return w;
+    }
+
+    /**
+     * Also add delta to an integer field, in the same write as update()'s fields
+     * (the new value is returned in the commit's transformResults)
+     */
+    public FirestoreWrite withIncrement(String fieldPath, long delta) {
+        JsonObject amount = new JsonObject();
+        amount.addProperty("integerValue", String.valueOf(delta));
+
+        JsonObject fieldTransform = new JsonObject();
+        fieldTransform.addProperty("fieldPath", fieldPath);
+        fieldTransform.add("increment", amount);
+
+        if (!write.has("updateTransforms")) {
+            write.add("updateTransforms", new JsonArray());
+        }
+        write.getAsJsonArray("updateTransforms").add(fieldTransform);
+        return this;
+    }
+
+    /**
+     * Only apply if the document still has this updateTime (optimistic concurrency)
+     *
+     * @param updateTime The "updateTime" value returned when the document was read
+     */
+    public FirestoreWrite ifUpdateTime(String updateTime) {
+        JsonObject precondition = new JsonObject();
+        precondition.addProperty("updateTime", updateTime);
+        write.add("currentDocument", precondition);
+        return this;
+    }
+
+    /**
+     * Only apply if the document exists (never create it)
+     */
+    public FirestoreWrite ifExists() {
+        JsonObject precondition = new JsonObject();
+        precondition.addProperty("exists", true);
+        write.add("currentDocument", precondition);
+        return this;
+    }
+
+    /**
+     * Only apply if the document does not exist yet (create, never overwrite)
+     */
+    public FirestoreWrite ifMissing() {
+        JsonObject precondition = new JsonObject();
+        precondition.addProperty("exists", false);
+        write.add("currentDocument", precondition);
+        return this;
+    }
+
+    JsonObject toJson() {
+        return write;
+    }
+}
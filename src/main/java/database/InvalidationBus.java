@@ -0,0 +1,189 @@
+package database;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * InvalidationBus - Cache invalidation between RMIServer nodes
+ *
+ * When several servers run against the same Firestore project, each one
+ * caches users (EmployeeDirectory) and leave balances. After a mutation,
+ * AuthService publishes the changed key - collection + document id, e.g.
+ * users/abc123 - and every other node evicts it from its caches.
+ * - Transport: one small UDP multicast datagram per key, on the local
+ *   network (TTL hrm.cluster.multicastTtl, default 1)
+ * - Versioned: each key carries the sender's node id and a monotonic
+ *   version (hybrid clock: max(last + 1, now millis)); duplicated or
+ *   reordered datagrams for an already seen version are ignored
+ * - Best effort: a lost datagram only means the entry lives until its
+ *   cache TTL, as it would without the bus
+ *
+ * Disabled (publish is a no-op) unless hrm.cluster.multicastGroup is set,
+ * e.g. -Dhrm.cluster.multicastGroup=239.10.10.10
+ *
+ * Settings (system properties):
+ * - hrm.cluster.multicastGroup  Multicast address shared by all nodes (default: off)
+ * - hrm.cluster.multicastPort   UDP port (default 4446)
+ * - hrm.cluster.multicastTtl    Hops datagrams may travel (default 1 = local subnet)
+ */
+public final class InvalidationBus {
+
+    private static final String GROUP = System.getProperty("hrm.cluster.multicastGroup");
+    private static final int PORT = Integer.getInteger("hrm.cluster.multicastPort", 4446);
+    private static final int TTL = Integer.getInteger("hrm.cluster.multicastTtl", 1);
+
+    // Datagram: MAGIC|nodeId|collection|documentId|version
+    private static final String MAGIC = "HRMINV1";
+
+    private static final InvalidationBus INSTANCE = new InvalidationBus();
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+
+    // nodeId|collection|documentId -> newest version seen
+    private final Cache<String, Long> seenVersions = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    private MulticastSocket socket;
+    private InetAddress group;
+
+    private InvalidationBus() {
+        if (GROUP == null || GROUP.isEmpty()) {
+            return; // Single node: nothing to tell anyone
+        }
+        try {
+            group = InetAddress.getByName(GROUP);
+            socket = new MulticastSocket(PORT);
+            socket.setTimeToLive(TTL);
+            socket.joinGroup(new InetSocketAddress(group, PORT), null);
+
+            Thread receiver = new Thread(this::receive, "cache-invalidation");
+            receiver.setDaemon(true);
+            receiver.start();
+            System.out.println("✓ Cache invalidation bus on " + GROUP + ":" + PORT + " (node " + nodeId + ")");
+        } catch (IOException e) {
+            socket = null;
+            System.out.println("✗ Cache invalidation bus disabled - could not join " + GROUP + ": " + e.getMessage());
+        }
+    }
+
+    public static InvalidationBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Call evictor with the document id whenever another node changes a
+     * document of this collection
+     */
+    public void subscribe(String collection, Consumer<String> evictor) {
+        subscribers.computeIfAbsent(collection, c -> new CopyOnWriteArrayList<>()).add(evictor);
+    }
+
+    /**
+     * Tell the other nodes that a document changed (call after the write)
+     */
+    public void publish(String collection, String documentId) {
+        if (socket == null || documentId == null) {
+            return;
+        }
+        long version = clock.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+        byte[] data = String.join("|", MAGIC, nodeId, collection, documentId, Long.toString(version))
+                .getBytes(StandardCharsets.UTF_8);
+        try {
+            socket.send(new DatagramPacket(data, data.length, group, PORT));
+            published.increment();
+        } catch (IOException e) {
+            System.out.println("Invalidation not sent for " + collection + "/" + documentId + ": " + e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return socket != null;
+    }
+
+    /**
+     * One-line summary for the server health monitor
+     */
+    public String getStats() {
+        if (socket == null) {
+            return "off";
+        }
+        return "node=" + nodeId + "  published=" + published.sum() + "  received=" + received.sum()
+                + "  duplicates=" + duplicates.sum();
+    }
+
+    private void receive() {
+        byte[] buffer = new byte[1024];
+        long backoffMs = 0;
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                backoffMs = 0;
+            } catch (IOException e) {
+                if (socket.isClosed()) {
+                    break; // Shut down
+                }
+                // Network trouble: wait before the next try (100ms doubling up to 5s)
+                backoffMs = Math.min(Math.max(backoffMs * 2, 100), 5_000);
+                System.out.println("Invalidation receive failed (" + e.getMessage() + "), retrying in "
+                        + backoffMs + "ms");
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                continue;
+            }
+            String[] parts = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8)
+                    .split("\\|");
+            if (parts.length != 5 || !MAGIC.equals(parts[0]) || nodeId.equals(parts[1])) {
+                continue; // Not ours, or our own datagram looped back
+            }
+            try {
+                apply(parts[1], parts[2], parts[3], Long.parseLong(parts[4]));
+            } catch (RuntimeException e) {
+                System.out.println("Invalidation ignored: " + e.getMessage());
+            }
+        }
+    }
+
+    private void apply(String sender, String collection, String documentId, long version) {
+        String key = sender + "|" + collection + "|" + documentId;
+        Long seen = seenVersions.getIfPresent(key);
+        if (seen != null && seen >= version) {
+            duplicates.increment();
+            return;
+        }
+        seenVersions.put(key, version);
+        received.increment();
+
+        for (Consumer<String> evictor : subscribers.getOrDefault(collection, List.of())) {
+            evictor.accept(documentId);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package database;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonObject;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LeaveBalanceCache - Server-wide cache of Leave_Balance documents, keyed by employee
+ *
+ * Balance reads (view balance, apply for leave, approve) are served from
+ * memory; AuthService reads Firestore only on a miss.
+ * - Write-through: create, year reset and approve put the document they just
+ *   wrote (as returned by Firestore) instead of dropping the entry
+ * - Every entry carries its Firestore updateTime as a version stamp; put()
+ *   never replaces an entry with an older version, so a slow read finishing
+ *   after a write cannot bring back the old balance
+ * - Changes made on other server nodes evict the entry here (InvalidationBus,
+ *   key Leave_Balance/<userId>), and changed documents reported by
+ *   ChangeTracker replace entries; the TTL bounds staleness from edits made
+ *   outside the system
+ *
+ * Settings (system properties):
+ * - hrm.cache.leaveBalance.ttlSeconds  Entry lifetime (default 300)
+ * - hrm.cache.leaveBalance.maxEntries  Max cached employees, LRU evicted (default 10000)
+ */
+public final class LeaveBalanceCache {
+
+    private static final long TTL_SECONDS = Long.getLong("hrm.cache.leaveBalance.ttlSeconds", 300);
+    private static final long MAX_ENTRIES = Long.getLong("hrm.cache.leaveBalance.maxEntries", 10_000);
+
+    private static final LeaveBalanceCache INSTANCE = new LeaveBalanceCache();
+
+    // userId -> raw Leave_Balance document (name, fields, updateTime)
+    private final Cache<String, JsonObject> cache = CacheBuilder.newBuilder()
+            .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+            .maximumSize(MAX_ENTRIES)
+            .build();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private LeaveBalanceCache() {
+        InvalidationBus.getInstance().subscribe("Leave_Balance", cache::invalidate);
+        ChangeTracker.getInstance().subscribe("Leave_Balance", doc -> {
+            JsonObject fields = doc.getAsJsonObject("fields");
+            if (fields != null && fields.has("userid")) {
+                put(fields.getAsJsonObject("userid").get("stringValue").getAsString(), doc);
+            }
+        });
+    }
+
+    public static LeaveBalanceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return Cached balance document, or null on a miss
+     */
+    JsonObject get(String userId) {
+        JsonObject doc = cache.getIfPresent(userId);
+        (doc != null ? hits : misses).increment();
+        return doc;
+    }
+
+    /**
+     * Store a balance document that was just read or written
+     * Ignored if the cache already holds a newer version of it
+     */
+    void put(String userId, JsonObject doc) {
+        if (userId == null || doc == null || !doc.has("updateTime")) {
+            return;
+        }
+        cache.asMap().merge(userId, doc, (current, candidate) -> isNewer(current, candidate) ? current : candidate);
+    }
+
+    /**
+     * Drop an employee's balance so the next read goes to Firestore
+     */
+    void invalidate(String userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * Current entries (userId -> document), for CacheSnapshot
+     */
+    java.util.Map<String, JsonObject> entries() {
+        return new java.util.HashMap<>(cache.asMap());
+    }
+
+    /**
+     * One-line summary for the server health monitor
+     */
+    public String getStats() {
+        return "size=" + cache.size() + "  hits=" + hits.sum() + "  misses=" + misses.sum();
+    }
+
+    private static boolean isNewer(JsonObject a, JsonObject b) {
+        return Instant.parse(a.get("updateTime").getAsString())
+                .isAfter(Instant.parse(b.get("updateTime").getAsString()));
+    }
+}
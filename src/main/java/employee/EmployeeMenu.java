@@ -1,12 +1,15 @@
 package employee;
 
+import model.Employee;
+import model.LeaveBalance;
+import model.LeaveRequest;
+import model.PayrollEntry;
 import server.AuthInterface;
+import server.HrmDataInterface;
 
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
+import java.rmi.Remote;
+import java.util.List;
 import java.util.Scanner;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 /**
  * EmployeeMenu - Employee Dashboard User Interface
@@ -18,70 +21,73 @@ import com.google.gson.JsonParser;
  *
  * Employees CANNOT modify any data (read-only access).
  * All operations are done via RMI calls to the server.
+ * Own data is fetched as records (HrmDataInterface) and rendered here.
  */
 public class EmployeeMenu {
 
-    // Reference to the remote service (RMI stub)
+    // Reference to the remote service (RMI stub), used through both interfaces
     private static AuthInterface authService;
+    private static HrmDataInterface dataService;
+
+    // Session of the logged-in employee; leave applications are filed for its user
+    private static String sessionToken;
 
     /**
      * Main entry point for Employee menu
      * 
      * @param scanner Shared Scanner for user input
+     * @param service Connected RMI stub (from ServerCluster.connect in RMIClient)
+     * @param token   Session token from openSession
      * @param uid     Current user's UID (used to fetch their own data)
      * @param email   Current user's email
      */
-    public static void show(Scanner scanner, String uid, String email) {
-        try {
-            // Connect to RMI service
-            Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-            authService = (AuthInterface) registry.lookup("AuthService");
-
-            System.out.println("========================================");
-            System.out.println("         EMPLOYEE PORTAL");
-            System.out.println("========================================");
-            System.out.println("Welcome, Employee!");
-            System.out.println();
-
-            // Main menu loop - keeps running until user logs out
-            boolean running = true;
-            while (running) {
-                // Display menu options (limited compared to HR)
-                System.out.println("1. View My Profile");
-                System.out.println("2. View My Payroll");
-                System.out.println("3. Update My Profile");
-                System.out.println("4. Apply for Leave");
-                System.out.println("5. Logout");
-                System.out.println("----------------------------------------");
-                System.out.print("Choice: ");
+    public static void show(Scanner scanner, Remote service, String token, String uid, String email) {
+        // Use the stub RMIClient connected with (fails over between servers)
+        authService = (AuthInterface) service;
+        dataService = (HrmDataInterface) service;
+        sessionToken = token;
+
+        System.out.println("========================================");
+        System.out.println("         EMPLOYEE PORTAL");
+        System.out.println("========================================");
+        System.out.println("Welcome, Employee!");
+        System.out.println();
+
+        // Main menu loop - keeps running until user logs out
+        boolean running = true;
+        while (running) {
+            // Display menu options (limited compared to HR)
+            System.out.println("1. View My Profile");
+            System.out.println("2. View My Payroll");
+            System.out.println("3. Update My Profile");
+            System.out.println("4. Apply for Leave");
+            System.out.println("5. Logout");
+            System.out.println("----------------------------------------");
+            System.out.print("Choice: ");
 
-                String choice = scanner.nextLine();
+            String choice = scanner.nextLine();
 
-                // Handle user choice
-                switch (choice) {
-                    case "1":
-                        viewProfile(uid); // Pass uid to view own profile
-                        break;
-                    case "2":
-                        viewMyPayroll(uid); // Pass uid to view own payroll
-                        break;
-                    case "3":
-                        updateProfile(uid, scanner);
-                        break;
-                    case "4":
-                        manageLeave(scanner, uid); // New leave management feature
-                        break;
-                    case "5":
-                        running = false; // Exit the loop
-                        System.out.println("\nLogged out. Goodbye!");
-                        break;
-                    default:
-                        System.out.println("\nInvalid choice.\n");
-                }
+            // Handle user choice
+            switch (choice) {
+                case "1":
+                    viewProfile(uid); // Pass uid to view own profile
+                    break;
+                case "2":
+                    viewMyPayroll(uid); // Pass uid to view own payroll
+                    break;
+                case "3":
+                    updateProfile(uid, scanner);
+                    break;
+                case "4":
+                    manageLeave(scanner, uid); // New leave management feature
+                    break;
+                case "5":
+                    running = false; // Exit the loop
+                    System.out.println("\nLogged out. Goodbye!");
+                    break;
+                default:
+                    System.out.println("\nInvalid choice.\n");
             }
-
-        } catch (java.rmi.RemoteException | java.rmi.NotBoundException e) {
-            System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
     }
 
@@ -92,8 +98,22 @@ public class EmployeeMenu {
      */
     private static void viewProfile(String uid) {
         try {
-            String profile = authService.getEmployeeByUid(uid); // RMI call
-            System.out.println("\n" + profile + "\n");
+            Employee profile = dataService.getEmployee(uid); // RMI call
+            System.out.println();
+            if (profile == null) {
+                System.out.println("Employee not found.\n");
+                return;
+            }
+            System.out.println("========================================");
+            System.out.println("         EMPLOYEE DETAILS");
+            System.out.println("========================================");
+            System.out.println("UID         : " + profile.uid());
+            System.out.println("Email       : " + orNA(profile.email()));
+            System.out.println("First Name  : " + orNA(profile.firstName()));
+            System.out.println("Last Name   : " + orNA(profile.lastName()));
+            System.out.println("IC/Passport : " + orNA(profile.icPassport()));
+            System.out.println("Role        : " + orNA(profile.role()));
+            System.out.println("========================================\n");
         } catch (java.rmi.RemoteException e) {
             System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
@@ -106,19 +126,29 @@ public class EmployeeMenu {
      */
     private static void viewMyPayroll(String uid) {
         try {
-            String payroll = authService.getPayrollByUserId(uid); // RMI call
-            System.out.println("\n" + payroll + "\n");
+            List<PayrollEntry> payroll = dataService.listPayrollByUserId(uid); // RMI call
+            System.out.println();
+            System.out.println("========================================");
+            System.out.println("        PAYROLL HISTORY");
+            System.out.println("========================================");
+            int count = 1;
+            for (PayrollEntry entry : payroll) {
+                System.out.println("\n[" + count++ + "]");
+                System.out.println("Payroll ID  : " + entry.payrollId());
+                System.out.println("Salary      : RM " + String.format("%,.2f", entry.salary()));
+                System.out.println("Month/Year  : " + getMonthName(entry.month()) + " " + entry.year());
+                System.out.println("----------------------------------------");
+            }
+            if (payroll.isEmpty()) {
+                System.out.println("\nNo payroll entries found.");
+                System.out.println("----------------------------------------");
+            }
+            System.out.println("========================================\n");
         } catch (java.rmi.RemoteException e) {
             System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
     }
 
-    /**
-     * Update own profile - Prompts for new details to update
-     * 
-     * @param uid     Current user's UID
-     * @param scanner Shared Scanner
-     */
     /**
      * Update own profile - Prompts for new details to update
      * Supports "Leave blank to keep current value"
@@ -129,24 +159,17 @@ public class EmployeeMenu {
     private static void updateProfile(String uid, Scanner scanner) {
         try {
             // Step 1: Fetch current data to use as defaults
-            String rawJson = authService.getEmployeeRaw(uid);
+            Employee current = dataService.getEmployee(uid);
             String currentEmail = "";
             String currentFirst = "";
             String currentLast = "";
             String currentIc = "";
 
-            if (rawJson != null) {
-                JsonObject json = JsonParser.parseString(rawJson).getAsJsonObject();
-                JsonObject fields = json.getAsJsonObject("fields");
-
-                if (fields.has("email"))
-                    currentEmail = fields.getAsJsonObject("email").get("stringValue").getAsString();
-                if (fields.has("first_name"))
-                    currentFirst = fields.getAsJsonObject("first_name").get("stringValue").getAsString();
-                if (fields.has("last_name"))
-                    currentLast = fields.getAsJsonObject("last_name").get("stringValue").getAsString();
-                if (fields.has("ic_passport"))
-                    currentIc = fields.getAsJsonObject("ic_passport").get("stringValue").getAsString();
+            if (current != null) {
+                currentEmail = orEmpty(current.email());
+                currentFirst = orEmpty(current.firstName());
+                currentLast = orEmpty(current.lastName());
+                currentIc = orEmpty(current.icPassport());
             }
 
             System.out.println("\n--- Update Profile ---");
@@ -277,10 +300,10 @@ public class EmployeeMenu {
             System.out.println("========================================");
 
             // Get leave balance data
-            java.util.Map<String, Integer> balanceData = authService.getLeaveBalanceData(uid);
-            int annualBalance = balanceData.getOrDefault("annual", 0);
-            int emergencyBalance = balanceData.getOrDefault("emergency", 0);
-            int medicalBalance = balanceData.getOrDefault("medical", 0);
+            LeaveBalance balance = dataService.getLeaveBalanceRecord(uid);
+            int annualBalance = balance != null ? balance.annual() : 0;
+            int emergencyBalance = balance != null ? balance.emergency() : 0;
+            int medicalBalance = balance != null ? balance.medical() : 0;
 
             // Step 1: Select leave type (with balance display)
             System.out.println("\nSelect Leave Type:");
@@ -354,11 +377,12 @@ public class EmployeeMenu {
             }
 
             // Step 6: Submit via RMI call (status will be automatically set to "Pending")
-            String result = authService.applyLeave(uid, leaveType, startDate, endDate, totalDays, reason);
+            String result = authService.applyOwnLeave(sessionToken, leaveType, startDate, endDate, totalDays,
+                    reason);
             System.out.println("\n" + result);
 
         } catch (java.rmi.RemoteException e) {
-            System.out.println("✗ Server connection error - please ensure the RMI server is running");
+            printRemoteError(e);
         }
     }
 
@@ -369,8 +393,27 @@ public class EmployeeMenu {
      */
     private static void viewLeaveHistory(String uid) {
         try {
-            String history = authService.getLeavesByUserId(uid);
-            System.out.println("\n" + history);
+            List<LeaveRequest> history = dataService.listLeavesByUserId(uid);
+            System.out.println();
+            System.out.println("========================================");
+            System.out.println("           MY LEAVE HISTORY");
+            System.out.println("========================================");
+            int count = 1;
+            for (LeaveRequest request : history) {
+                System.out.println("\n[" + count++ + "]");
+                System.out.println("Leave ID    : " + request.leaveId());
+                System.out.println("Type        : " + capitalizeFirst(request.leaveType()));
+                System.out.println("Period      : " + request.startDate() + " to " + request.endDate());
+                System.out.println("Total Days  : " + request.totalDays());
+                System.out.println("Reason      : " + request.reason());
+                System.out.println("Status      : " + getStatusDisplay(request.status()));
+                System.out.println("----------------------------------------");
+            }
+            if (history.isEmpty()) {
+                System.out.println("\nNo leave applications found.");
+                System.out.println("----------------------------------------");
+            }
+            System.out.println("========================================");
         } catch (java.rmi.RemoteException e) {
             System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
@@ -384,8 +427,23 @@ public class EmployeeMenu {
      */
     private static void viewLeaveBalance(String uid) {
         try {
-            String balance = authService.getLeaveBalance(uid);
-            System.out.println("\n" + balance);
+            LeaveBalance balance = dataService.getLeaveBalanceRecord(uid);
+            System.out.println();
+            if (balance == null) {
+                System.out.println("No leave balance found. Please contact HR.");
+                return;
+            }
+            System.out.println("========================================");
+            System.out.println("           MY LEAVE BALANCE");
+            System.out.println("========================================");
+            System.out.println("Year            : " + balance.year());
+            System.out.println("----------------------------------------");
+            System.out.println("Annual Leave    : " + balance.annual() + " days");
+            System.out.println("Emergency Leave : " + balance.emergency() + " days");
+            System.out.println("Medical Leave   : " + balance.medical() + " days");
+            System.out.println("----------------------------------------");
+            System.out.println("Total Remaining : " + balance.total() + " days");
+            System.out.println("========================================");
         } catch (java.rmi.RemoteException e) {
             System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
@@ -455,5 +513,63 @@ public class EmployeeMenu {
         }
         return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
     }
+
+    /**
+     * Get formatted status display with visual indicator
+     */
+    private static String getStatusDisplay(String status) {
+        if (status == null) {
+            return "Unknown";
+        }
+        switch (status.toLowerCase()) {
+            case "pending":
+                return "⏳ Pending";
+            case "approved":
+                return "✅ Approved";
+            case "rejected":
+                return "❌ Rejected";
+            default:
+                return status;
+        }
+    }
+
+    /**
+     * Get month name from month number ("01" -> "January")
+     */
+    private static String getMonthName(String month) {
+        String[] months = { "January", "February", "March", "April", "May", "June",
+                "July", "August", "September", "October", "November", "December" };
+        try {
+            int m = Integer.parseInt(month);
+            if (m >= 1 && m <= 12) {
+                return months[m - 1];
+            }
+        } catch (NumberFormatException e) {
+            // ignore
+        }
+        return month;
+    }
+
+    private static String orNA(String value) {
+        return value != null ? value : "N/A";
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    /**
+     * Report a failed remote call
+     * A session refused by the server (expired, wrong role, or opened on another
+     * server before a failover) arrives as an AccessException wrapped in a
+     * ServerException by RMI; anything else is a connection problem
+     */
+    private static void printRemoteError(java.rmi.RemoteException e) {
+        if (e instanceof java.rmi.ServerException && e.getCause() instanceof java.rmi.AccessException) {
+            System.out.println("✗ " + e.getCause().getMessage() + " - please log out and log in again");
+        } else {
+            System.out.println("✗ Server connection error - please ensure the RMI server is running");
+        }
+    }
 }
 
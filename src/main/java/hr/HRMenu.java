@@ -1,9 +1,19 @@
 package hr;
 
+import model.Employee;
+import model.LeaveDecision;
+import model.LeaveEvent;
+import model.LeaveRequest;
+import model.Page;
+import model.PayrollEntry;
 import server.AuthInterface;
+import server.HrmDataInterface;
+import server.LeaveEventListener;
 
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
+import java.rmi.Remote;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -18,23 +28,41 @@ import java.util.Scanner;
  * - Manage payroll (CRUD operations on Payroll_Salary collection)
  *
  * All operations are done via RMI calls to the server.
+ * Listings are fetched as records (HrmDataInterface) and rendered here,
+ * one page (PAGE_SIZE items) per RMI call.
+ *
+ * While the menu is open the server pushes leave events (new, approved,
+ * rejected requests) to a callback exported by this client, so HR sees
+ * them without re-listing.
  */
 public class HRMenu {
 
-    // Reference to the remote service (RMI stub)
+    // Reference to the remote service (RMI stub), used through both interfaces
     private static AuthInterface authService;
+    private static HrmDataInterface dataService;
+
+    // Session of the logged-in HR user; HR operations are checked against it on the server
+    private static String sessionToken;
+
+    // Items fetched per RMI call when listing employees / leave requests
+    private static final int PAGE_SIZE = 10;
 
     /**
      * Main entry point for HR menu
      * @param scanner Shared Scanner for user input
+     * @param service Connected RMI stub (from ServerCluster.connect in RMIClient)
+     * @param token Session token from openSession
      * @param uid Current user's UID
      * @param email Current user's email
      */
-    public static void show(Scanner scanner, String uid, String email) {
+    public static void show(Scanner scanner, Remote service, String token, String uid, String email) {
+        LeaveEventListener notifier = null;
         try {
-            // Connect to RMI service (same as in RMIClient)
-            Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-            authService = (AuthInterface) registry.lookup("AuthService");
+            // Use the stub RMIClient connected with (fails over between servers)
+            authService = (AuthInterface) service;
+            dataService = (HrmDataInterface) service;
+            sessionToken = token;
+            notifier = subscribeToLeaveEvents();
 
             System.out.println("========================================");
             System.out.println("         HR MANAGEMENT SYSTEM");
@@ -63,7 +91,7 @@ public class HRMenu {
                 // Handle user choice
                 switch (choice) {
                     case "1":
-                        viewAllEmployees();
+                        viewAllEmployees(scanner);
                         break;
                     case "2":
                         addEmployee(scanner);
@@ -78,7 +106,7 @@ public class HRMenu {
                         managePayroll(scanner);
                         break;
                     case "6":
-                        viewPendingLeaveRequests();
+                        viewPendingLeaveRequests(scanner);
                         break;
                     case "7":
                         approveRejectLeave(scanner);
@@ -95,8 +123,66 @@ public class HRMenu {
                 }
             }
 
-        } catch (java.rmi.RemoteException | java.rmi.NotBoundException e) {
-            System.out.println("✗ Server connection error - please ensure the RMI server is running");
+        } finally {
+            unsubscribeFromLeaveEvents(notifier); // Stop notifications after logout
+        }
+    }
+
+    // ==================== LEAVE EVENT NOTIFICATIONS ====================
+
+    /**
+     * LeaveNotifier - Callback the server invokes for every leave event
+     */
+    private static final class LeaveNotifier implements LeaveEventListener {
+        @Override
+        public void onLeaveEvent(LeaveEvent event) {
+            String employee = event.employeeName() != null ? event.employeeName() : event.userId();
+            String what = switch (event.type()) {
+                case APPLIED -> "New leave request";
+                case APPROVED -> "Leave request approved";
+                case REJECTED -> "Leave request rejected";
+            };
+            System.out.println("\n🔔 " + what + ": " + event.leaveId() + " - " + employee + ", "
+                    + capitalizeFirst(event.leaveType()) + ", " + event.totalDays() + " day(s)");
+        }
+    }
+
+    /**
+     * Export a LeaveNotifier and register it with the server
+     * Not fatal if it fails (e.g. the server cannot connect back): HR can
+     * still list pending requests manually
+     *
+     * @return The exported notifier, or null if not subscribed
+     */
+    private static LeaveEventListener subscribeToLeaveEvents() {
+        LeaveNotifier notifier = new LeaveNotifier();
+        try {
+            LeaveEventListener remote = (LeaveEventListener) UnicastRemoteObject.exportObject(notifier, 0);
+            dataService.addLeaveListener(sessionToken, remote);
+            return notifier;
+        } catch (java.rmi.RemoteException e) {
+            System.out.println("(Live leave notifications unavailable)");
+            unexportQuietly(notifier);
+            return null;
+        }
+    }
+
+    private static void unsubscribeFromLeaveEvents(LeaveEventListener notifier) {
+        if (notifier == null) {
+            return;
+        }
+        try {
+            dataService.removeLeaveListener((LeaveEventListener) UnicastRemoteObject.toStub(notifier));
+        } catch (java.rmi.RemoteException e) {
+            // Server drops unreachable listeners on its own
+        }
+        unexportQuietly(notifier);
+    }
+
+    private static void unexportQuietly(LeaveEventListener notifier) {
+        try {
+            UnicastRemoteObject.unexportObject(notifier, true);
+        } catch (java.rmi.NoSuchObjectException ignored) {
         }
     }
 
@@ -105,10 +191,10 @@ public class HRMenu {
     /**
      * View all employees - Calls server to get employee list from Firestore
      */
-    private static void viewAllEmployees() {
+    private static void viewAllEmployees(Scanner scanner) {
         try {
-            String result = authService.getAllEmployees(); // RMI call
-            System.out.println("\n" + result);
+            System.out.println();
+            browseEmployees(scanner); // RMI call per page
         } catch (java.rmi.RemoteException e) {
             System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
@@ -166,20 +252,19 @@ public class HRMenu {
 
             // Show all employees first
             System.out.println("\nAvailable Employees:");
-            String employees = authService.getAllEmployees();
-            System.out.println(employees);
+            browseEmployees(scanner);
 
             System.out.print("\nEnter Employee UID: ");
             String uid = scanner.nextLine();
 
             // Show current details
-            String details = authService.getEmployeeByUid(uid);
+            Employee employee = dataService.getEmployee(uid);
             System.out.println("\nCurrent Details:");
-            System.out.println(details);
-
-            if (details.contains("not found")) {
+            if (employee == null) {
+                System.out.println("Employee not found.");
                 return;
             }
+            printEmployeeDetails(employee);
 
             System.out.println("\nEnter new details:");
             System.out.print("First Name: ");
@@ -218,26 +303,25 @@ public class HRMenu {
 
             // Show all employees first
             System.out.println("\nAvailable Employees:");
-            String employees = authService.getAllEmployees();
-            System.out.println(employees);
+            browseEmployees(scanner);
 
             System.out.print("\nEnter Employee UID: ");
             String uid = scanner.nextLine();
 
             // Show current details
-            String details = authService.getEmployeeByUid(uid);
+            Employee employee = dataService.getEmployee(uid);
             System.out.println("\nEmployee Details:");
-            System.out.println(details);
-
-            if (details.contains("not found")) {
+            if (employee == null) {
+                System.out.println("Employee not found.");
                 return;
             }
+            printEmployeeDetails(employee);
 
             System.out.print("\nAre you sure you want to delete? (yes/no): ");
             String confirm = scanner.nextLine();
 
             if ("yes".equalsIgnoreCase(confirm)) {
-                boolean success = authService.deleteEmployee(uid);
+                boolean success = authService.deleteEmployee(sessionToken, uid);
 
                 if (success) {
                     System.out.println("\nEmployee deleted successfully!");
@@ -249,7 +333,7 @@ public class HRMenu {
             }
 
         } catch (java.rmi.RemoteException e) {
-            System.out.println("✗ Server connection error - please ensure the RMI server is running");
+            printRemoteError(e);
         }
     }
 
@@ -270,10 +354,9 @@ public class HRMenu {
                 System.out.println("Select an employee to manage their payroll:\n");
 
                 // Show all employees
-                String employees = authService.getAllEmployees();
-                System.out.println(employees);
+                browseEmployees(scanner);
 
-                System.out.println("\nEnter Employee UID (or 'back' to return): ");
+                System.out.println("\nEnter Employee UID ('all' to browse all payroll entries, 'back' to return): ");
                 System.out.print("UID: ");
                 String userId = scanner.nextLine();
 
@@ -281,16 +364,20 @@ public class HRMenu {
                     running = false;
                     continue;
                 }
+                if ("all".equalsIgnoreCase(userId)) {
+                    browsePayroll(scanner);
+                    continue;
+                }
 
                 // Verify employee exists and get their info
-                String employeeDetails = authService.getEmployeeByUid(userId);
-                if (employeeDetails.contains("not found")) {
+                Employee employee = dataService.getEmployee(userId);
+                if (employee == null) {
                     System.out.println("\nEmployee not found. Please enter a valid UID.");
                     continue;
                 }
 
-                // Extract employee name and email for display
-                String employeeName = extractEmployeeInfo(employeeDetails);
+                // Employee name and email for display
+                String employeeName = employee.fullName() + " (" + employee.email() + ")";
 
                 // Show employee-specific payroll submenu
                 manageEmployeePayroll(scanner, userId, employeeName);
@@ -301,26 +388,6 @@ public class HRMenu {
         }
     }
 
-    private static String extractEmployeeInfo(String details) {
-        // Parse employee details to extract name and email
-        String firstName = "";
-        String lastName = "";
-        String email = "";
-
-        String[] lines = details.split("\n");
-        for (String line : lines) {
-            if (line.contains("Email")) {
-                email = line.substring(line.indexOf(":") + 1).trim();
-            } else if (line.contains("First Name")) {
-                firstName = line.substring(line.indexOf(":") + 1).trim();
-            } else if (line.contains("Last Name")) {
-                lastName = line.substring(line.indexOf(":") + 1).trim();
-            }
-        }
-
-        return firstName + " " + lastName + " (" + email + ")";
-    }
-
     private static void manageEmployeePayroll(Scanner scanner, String userId, String employeeName) {
         boolean running = true;
         while (running) {
@@ -361,8 +428,9 @@ public class HRMenu {
 
     private static void viewEmployeePayroll(String userId) {
         try {
-            String result = authService.getPayrollByUserId(userId);
-            System.out.println("\n" + result);
+            List<PayrollEntry> entries = dataService.listPayrollByUserId(userId);
+            System.out.println();
+            printPayrollHistory(entries);
         } catch (java.rmi.RemoteException e) {
             System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
@@ -409,10 +477,10 @@ public class HRMenu {
             System.out.println("========================================");
 
             // Show this employee's payroll entries
-            String payrollHistory = authService.getPayrollByUserId(userId);
-            System.out.println(payrollHistory);
+            List<PayrollEntry> payrollHistory = dataService.listPayrollByUserId(userId);
+            printPayrollHistory(payrollHistory);
 
-            if (payrollHistory.contains("No payroll entries found")) {
+            if (payrollHistory.isEmpty()) {
                 return;
             }
 
@@ -459,10 +527,10 @@ public class HRMenu {
             System.out.println("========================================");
 
             // Show this employee's payroll entries
-            String payrollHistory = authService.getPayrollByUserId(userId);
-            System.out.println(payrollHistory);
+            List<PayrollEntry> payrollHistory = dataService.listPayrollByUserId(userId);
+            printPayrollHistory(payrollHistory);
 
-            if (payrollHistory.contains("No payroll entries found")) {
+            if (payrollHistory.isEmpty()) {
                 return;
             }
 
@@ -494,10 +562,12 @@ public class HRMenu {
     /**
      * View all pending leave requests
      */
-    private static void viewPendingLeaveRequests() {
+    private static void viewPendingLeaveRequests(Scanner scanner) {
         try {
-            String result = authService.getAllPendingLeaves();
-            System.out.println("\n" + result);
+            System.out.print("\nFilter by leave type (annual/emergency/medical, Enter for all): ");
+            String leaveType = scanner.nextLine().trim();
+            System.out.println();
+            browsePendingLeaves(scanner, leaveType.isEmpty() ? null : leaveType);
         } catch (java.rmi.RemoteException e) {
             System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
@@ -512,26 +582,15 @@ public class HRMenu {
             System.out.println("      APPROVE/REJECT LEAVE REQUEST");
             System.out.println("========================================");
 
-            // Show pending leave requests first
-            String pendingLeaves = authService.getAllPendingLeaves();
-            System.out.println(pendingLeaves);
+            // Show pending leave requests first (as many pages as HR looks at)
+            List<LeaveRequest> pendingLeaves = browsePendingLeaves(scanner, null);
 
-            if (pendingLeaves.contains("No pending leave requests")) {
+            if (pendingLeaves.isEmpty()) {
                 return;
             }
 
-            // Extract leave IDs from the output
-            java.util.List<String> leaveIds = new java.util.ArrayList<>();
-            String[] lines = pendingLeaves.split("\n");
-            for (String line : lines) {
-                if (line.contains("Leave ID    :")) {
-                    String leaveId = line.substring(line.indexOf(":") + 1).trim();
-                    leaveIds.add(leaveId);
-                }
-            }
-
             System.out.println();
-            System.out.print("Enter request number (e.g., 1, 2, ...): ");
+            System.out.print("Enter request number(s) (e.g., 1 or 1,3,5 or 'all'): ");
             String numberInput = scanner.nextLine().trim();
 
             if (numberInput.isEmpty()) {
@@ -539,20 +598,36 @@ public class HRMenu {
                 return;
             }
 
-            int requestNumber;
-            try {
-                requestNumber = Integer.parseInt(numberInput);
-            } catch (NumberFormatException e) {
-                System.out.println("Invalid number format.");
-                return;
+            List<String> leaveIds = new ArrayList<>();
+            if ("all".equalsIgnoreCase(numberInput)) {
+                for (LeaveRequest request : pendingLeaves) {
+                    leaveIds.add(request.leaveId());
+                }
+            } else {
+                for (String part : numberInput.split(",")) {
+                    int requestNumber;
+                    try {
+                        requestNumber = Integer.parseInt(part.trim());
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid number format.");
+                        return;
+                    }
+
+                    if (requestNumber < 1 || requestNumber > pendingLeaves.size()) {
+                        System.out.println("Invalid request number. Please enter a number between 1 and "
+                                + pendingLeaves.size());
+                        return;
+                    }
+                    leaveIds.add(pendingLeaves.get(requestNumber - 1).leaveId());
+                }
             }
 
-            if (requestNumber < 1 || requestNumber > leaveIds.size()) {
-                System.out.println("Invalid request number. Please enter a number between 1 and " + leaveIds.size());
+            if (leaveIds.size() > 1) {
+                decideLeaves(scanner, leaveIds);
                 return;
             }
 
-            String leaveId = leaveIds.get(requestNumber - 1);
+            String leaveId = leaveIds.get(0);
             System.out.println("Selected: " + leaveId);
 
             System.out.println("\n1. Approve");
@@ -564,11 +639,11 @@ public class HRMenu {
             String result;
             switch (action) {
                 case "1":
-                    result = authService.approveLeave(leaveId);
+                    result = authService.approveLeave(sessionToken, leaveId);
                     System.out.println("\n" + result);
                     break;
                 case "2":
-                    result = authService.rejectLeave(leaveId);
+                    result = authService.rejectLeave(sessionToken, leaveId);
                     System.out.println("\n" + result);
                     break;
                 case "3":
@@ -579,10 +654,50 @@ public class HRMenu {
             }
 
         } catch (java.rmi.RemoteException e) {
-            System.out.println("✗ Server connection error - please ensure the RMI server is running");
+            printRemoteError(e);
         }
     }
 
+    /**
+     * Approve or reject several leave requests with one bulk RMI call
+     */
+    private static void decideLeaves(Scanner scanner, List<String> leaveIds) throws java.rmi.RemoteException {
+        System.out.println("Selected " + leaveIds.size() + " request(s).");
+        System.out.println("\n1. Approve all selected");
+        System.out.println("2. Reject all selected");
+        System.out.println("3. Cancel");
+        System.out.print("Choice: ");
+        String action = scanner.nextLine();
+
+        List<LeaveDecision> decisions;
+        switch (action) {
+            case "1":
+                decisions = dataService.approveLeaves(sessionToken, leaveIds);
+                break;
+            case "2":
+                decisions = dataService.rejectLeaves(sessionToken, leaveIds);
+                break;
+            case "3":
+                System.out.println("\nAction cancelled.");
+                return;
+            default:
+                System.out.println("\nInvalid choice.");
+                return;
+        }
+
+        int succeeded = 0;
+        System.out.println();
+        for (LeaveDecision decision : decisions) {
+            if (decision.success()) {
+                succeeded++;
+                System.out.println("✓ " + decision.leaveId());
+            } else {
+                System.out.println("✗ " + decision.leaveId() + ": " + decision.message().replace("\n", " "));
+            }
+        }
+        System.out.println("\n" + succeeded + " of " + decisions.size() + " request(s) processed successfully.");
+    }
+
     /**
      * Generate yearly leave report and export to file
      */
@@ -611,4 +726,217 @@ public class HRMenu {
             System.out.println("✗ Server connection error - please ensure the RMI server is running");
         }
     }
+
+    // ==================== PAGING ====================
+
+    /**
+     * Show users with role "employee" one page at a time, sorted by last name
+     * After each page HR can press Enter for the next one or 'q' to stop
+     */
+    private static void browseEmployees(Scanner scanner) throws java.rmi.RemoteException {
+        String cursor = null;
+        int shown = 0;
+        do {
+            Page<Employee> page = dataService.listEmployeesPage(PAGE_SIZE, cursor, "last_name", "employee");
+            printEmployees(page.items(), shown + 1);
+            shown += page.items().size();
+            cursor = page.nextCursor();
+        } while (cursor != null && wantsNextPage(scanner));
+    }
+
+    /**
+     * Show pending leave requests one page at a time, oldest first
+     *
+     * @param leaveType Only this leave type, or null for all
+     * @return Every request shown, in display order (request number - 1 = index)
+     */
+    private static List<LeaveRequest> browsePendingLeaves(Scanner scanner, String leaveType)
+            throws java.rmi.RemoteException {
+        List<LeaveRequest> shown = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<LeaveRequest> page = dataService.listPendingLeavesPage(PAGE_SIZE, cursor, "created", leaveType);
+            printPendingLeaves(page.items(), shown.size() + 1);
+            shown.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null && wantsNextPage(scanner));
+        return shown;
+    }
+
+    /**
+     * Show all payroll entries one page at a time, newest year first
+     * HR can filter by year and month first
+     */
+    private static void browsePayroll(Scanner scanner) throws java.rmi.RemoteException {
+        System.out.print("\nFilter by year (e.g. 2025, Enter for all): ");
+        String year = scanner.nextLine().trim();
+        System.out.print("Filter by month (1-12, Enter for all): ");
+        String month = scanner.nextLine().trim();
+        System.out.println();
+
+        String cursor = null;
+        int shown = 0;
+        try {
+            do {
+                Page<PayrollEntry> page = dataService.listPayrollPage(PAGE_SIZE, cursor, "-year",
+                        year.isEmpty() ? null : year, month.isEmpty() ? null : month);
+                printPayrollEntries(page.items(), shown + 1);
+                shown += page.items().size();
+                cursor = page.nextCursor();
+            } while (cursor != null && wantsNextPage(scanner));
+        } catch (IllegalArgumentException e) {
+            System.out.println("✗ " + e.getMessage());
+        }
+    }
+
+    private static boolean wantsNextPage(Scanner scanner) {
+        System.out.print("More results - press Enter for the next page, or 'q' to stop: ");
+        return !"q".equalsIgnoreCase(scanner.nextLine().trim());
+    }
+
+    // ==================== DISPLAY HELPERS ====================
+    // Render the records returned by HrmDataInterface
+
+    private static void printEmployees(List<Employee> employees, int firstNumber) {
+        System.out.println("========================================");
+        System.out.println("           ALL EMPLOYEES");
+        System.out.println("========================================");
+        int count = firstNumber;
+        for (Employee employee : employees) {
+            System.out.println("\n[" + count++ + "]");
+            System.out.println("UID         : " + employee.uid());
+            System.out.println("Email       : " + orNA(employee.email()));
+            System.out.println("First Name  : " + orNA(employee.firstName()));
+            System.out.println("Last Name   : " + orNA(employee.lastName()));
+            System.out.println("IC/Passport : " + orNA(employee.icPassport()));
+            System.out.println("Role        : " + orNA(employee.role()));
+        }
+        if (employees.isEmpty() && firstNumber == 1) {
+            System.out.println("No employees found.");
+        }
+        System.out.println("========================================");
+    }
+
+    private static void printEmployeeDetails(Employee employee) {
+        System.out.println("========================================");
+        System.out.println("         EMPLOYEE DETAILS");
+        System.out.println("========================================");
+        System.out.println("UID         : " + employee.uid());
+        System.out.println("Email       : " + orNA(employee.email()));
+        System.out.println("First Name  : " + orNA(employee.firstName()));
+        System.out.println("Last Name   : " + orNA(employee.lastName()));
+        System.out.println("IC/Passport : " + orNA(employee.icPassport()));
+        System.out.println("Role        : " + orNA(employee.role()));
+        System.out.println("========================================");
+    }
+
+    private static void printPayrollHistory(List<PayrollEntry> entries) {
+        System.out.println("========================================");
+        System.out.println("        PAYROLL HISTORY");
+        System.out.println("========================================");
+        int count = 1;
+        for (PayrollEntry entry : entries) {
+            System.out.println("\n[" + count++ + "]");
+            System.out.println("Payroll ID  : " + entry.payrollId());
+            System.out.println("Salary      : RM " + String.format("%,.2f", entry.salary()));
+            System.out.println("Month/Year  : " + getMonthName(entry.month()) + " " + entry.year());
+            System.out.println("----------------------------------------");
+        }
+        if (entries.isEmpty()) {
+            System.out.println("\nNo payroll entries found for this employee.");
+            System.out.println("----------------------------------------");
+        }
+        System.out.println("========================================");
+    }
+
+    private static void printPayrollEntries(List<PayrollEntry> entries, int firstNumber) {
+        System.out.println("========================================");
+        System.out.println("           ALL PAYROLL ENTRIES");
+        System.out.println("========================================");
+        int count = firstNumber;
+        for (PayrollEntry entry : entries) {
+            String employee = entry.employeeName() != null
+                    ? entry.employeeName() + " (" + orNA(entry.employeeEmail()) + ")"
+                    : "Unknown (" + entry.userId() + ")";
+            System.out.println("\n[" + count++ + "]");
+            System.out.println("Payroll ID  : " + entry.payrollId());
+            System.out.println("Employee    : " + employee);
+            System.out.println("Salary      : RM " + String.format("%,.2f", entry.salary()));
+            System.out.println("Month/Year  : " + getMonthName(entry.month()) + " " + entry.year());
+            System.out.println("----------------------------------------");
+        }
+        if (entries.isEmpty() && firstNumber == 1) {
+            System.out.println("\nNo payroll entries found.");
+            System.out.println("----------------------------------------");
+        }
+        System.out.println("========================================");
+    }
+
+    private static void printPendingLeaves(List<LeaveRequest> requests, int firstNumber) {
+        System.out.println("========================================");
+        System.out.println("      PENDING LEAVE REQUESTS");
+        System.out.println("========================================");
+        int count = firstNumber;
+        for (LeaveRequest request : requests) {
+            String employee = request.employeeName() != null
+                    ? request.employeeName() + " (" + request.employeeEmail() + ")"
+                    : "Unknown (" + request.userId() + ")";
+            String appliedOn = request.dateCreated().length() >= 10
+                    ? request.dateCreated().substring(0, 10)
+                    : request.dateCreated();
+
+            System.out.println("\n[" + count++ + "]");
+            System.out.println("Leave ID    : " + request.leaveId());
+            System.out.println("Employee    : " + employee);
+            System.out.println("Type        : " + capitalizeFirst(request.leaveType()));
+            System.out.println("Period      : " + request.startDate() + " to " + request.endDate());
+            System.out.println("Total Days  : " + request.totalDays());
+            System.out.println("Reason      : " + request.reason());
+            System.out.println("Applied On  : " + appliedOn);
+            System.out.println("----------------------------------------");
+        }
+        if (requests.isEmpty() && firstNumber == 1) {
+            System.out.println("\nNo pending leave requests.");
+        }
+        System.out.println("========================================");
+    }
+
+    private static String getMonthName(String month) {
+        String[] months = { "January", "February", "March", "April", "May", "June",
+                "July", "August", "September", "October", "November", "December" };
+        try {
+            int m = Integer.parseInt(month);
+            if (m >= 1 && m <= 12) {
+                return months[m - 1];
+            }
+        } catch (NumberFormatException e) {
+            // ignore
+        }
+        return month;
+    }
+
+    private static String capitalizeFirst(String str) {
+        if (str == null || str.isEmpty()) {
+            return str;
+        }
+        return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
+    }
+
+    private static String orNA(String value) {
+        return value != null ? value : "N/A";
+    }
+
+    /**
+     * Report a failed remote call
+     * A session refused by the server (expired, wrong role, or opened on another
+     * server before a failover) arrives as an AccessException wrapped in a
+     * ServerException by RMI; anything else is a connection problem
+     */
+    private static void printRemoteError(java.rmi.RemoteException e) {
+        if (e instanceof java.rmi.ServerException && e.getCause() instanceof java.rmi.AccessException) {
+            System.out.println("✗ " + e.getCause().getMessage() + " - please log out and log in again");
+        } else {
+            System.out.println("✗ Server connection error - please ensure the RMI server is running");
+        }
+    }
 }
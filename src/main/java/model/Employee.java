@@ -0,0 +1,24 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * Employee - One /users document as sent over RMI
+ *
+ * Missing fields are null. Rendering is left to the client menus.
+ */
+public record Employee(
+        String uid,
+        String email,
+        String firstName,
+        String lastName,
+        String icPassport,
+        String role) implements Serializable {
+
+    /**
+     * @return "First Last"
+     */
+    public String fullName() {
+        return firstName + " " + lastName;
+    }
+}
@@ -0,0 +1,21 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * LeaveBalance - One employee's Leave_Balance document as sent over RMI
+ */
+public record LeaveBalance(
+        String userId,
+        String year,
+        int annual,
+        int emergency,
+        int medical) implements Serializable {
+
+    /**
+     * @return Days left across all leave types
+     */
+    public int total() {
+        return annual + emergency + medical;
+    }
+}
@@ -0,0 +1,14 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * LeaveDecision - Outcome of approving/rejecting one leave request
+ *
+ * message is the same text the single approveLeave/rejectLeave call returns.
+ */
+public record LeaveDecision(
+        String leaveId,
+        boolean success,
+        String message) implements Serializable {
+}
@@ -0,0 +1,20 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * LeaveEvent - A change to a leave request, pushed to subscribed HR clients
+ */
+public record LeaveEvent(
+        Type type,
+        String leaveId,
+        String userId,
+        String employeeName,
+        String leaveType,
+        int totalDays,
+        long timestamp) implements Serializable {
+
+    public enum Type {
+        APPLIED, APPROVED, REJECTED
+    }
+}
@@ -0,0 +1,24 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * LeaveRequest - One Leave_Request document as sent over RMI
+ *
+ * status is "Pending", "Approved" or "Rejected"; dateCreated is the
+ * ISO-8601 submission time. employeeName / employeeEmail are resolved on the
+ * server (null if the employee no longer exists).
+ */
+public record LeaveRequest(
+        String leaveId,
+        String userId,
+        String employeeName,
+        String employeeEmail,
+        String leaveType,
+        String startDate,
+        String endDate,
+        int totalDays,
+        String reason,
+        String status,
+        String dateCreated) implements Serializable {
+}
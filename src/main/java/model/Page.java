@@ -0,0 +1,17 @@
+package model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Page - One page of a cursor-paged listing
+ *
+ * nextCursor is opaque: pass it back unchanged to get the following page.
+ * It is null on the last page.
+ */
+public record Page<T>(List<T> items, String nextCursor) implements Serializable {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,19 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * PayrollEntry - One Payroll_Salary document as sent over RMI
+ *
+ * employeeName / employeeEmail are resolved on the server so HR listings
+ * need no extra lookups; they are null if the employee no longer exists.
+ */
+public record PayrollEntry(
+        String payrollId,
+        String userId,
+        String employeeName,
+        String employeeEmail,
+        double salary,
+        String month,
+        String year) implements Serializable {
+}
@@ -0,0 +1,28 @@
+package model;
+
+import java.io.Serializable;
+
+/**
+ * Session - A logged-in user as returned by AuthInterface.openSession
+ *
+ * token identifies the server-side session; the role is resolved once at
+ * login, so the client never has to ask for it separately.
+ */
+public record Session(
+        String token,
+        String uid,
+        String email,
+        String role,
+        long expiresAt) implements Serializable {
+
+    /**
+     * @return true once expiresAt (epoch millis) has passed
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+
+    public boolean isHr() {
+        return "hr".equalsIgnoreCase(role);
+    }
+}
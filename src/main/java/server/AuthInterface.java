@@ -1,5 +1,7 @@
 package server;
 
+import model.Session;
+
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 
@@ -27,6 +29,33 @@ public interface AuthInterface extends Remote {
          */
         String login(String email, String password) throws RemoteException;
 
+        /**
+         * Authenticate user and open a server-side session
+         * The session already carries the user's role, so no getRole call
+         * is needed after login
+         *
+         * @param email    User's email address
+         * @param password User's password
+         * @return Session (token, uid, role, expiry), or null if login failed
+         *         or the user has no role
+         */
+        Session openSession(String email, String password) throws RemoteException;
+
+        /**
+         * Look up an open session
+         *
+         * @param token Session token from openSession
+         * @return Session, or null if unknown or expired
+         */
+        Session getSession(String token) throws RemoteException;
+
+        /**
+         * End a session (logout)
+         *
+         * @param token Session token from openSession
+         */
+        void logout(String token) throws RemoteException;
+
         /**
          * Get user's role from database
          * 
@@ -89,14 +118,6 @@ public interface AuthInterface extends Remote {
          */
         String getEmployeeRaw(String uid) throws RemoteException;
 
-        /**
-         * Delete employee from system (removes from Auth + Firestore + Payroll)
-         * 
-         * @param uid Employee's unique ID
-         * @return true if successful, false if failed
-         */
-        boolean deleteEmployee(String uid) throws RemoteException;
-
         // ==================== PAYROLL CRUD OPERATIONS ====================
 
         /**
@@ -139,21 +160,6 @@ public interface AuthInterface extends Remote {
 
         // ==================== LEAVE MANAGEMENT OPERATIONS ====================
 
-        /**
-         * Apply for leave (Employee only)
-         * Creates a new leave request with status "Pending"
-         *
-         * @param userId    Employee's UID
-         * @param leaveType Type of leave ("annual" | "emergency" | "medical")
-         * @param startDate Start date of leave (format: YYYY-MM-DD)
-         * @param endDate   End date of leave (format: YYYY-MM-DD)
-         * @param totalDays Total number of leave days
-         * @param reason    Reason for leave
-         * @return Success/error message
-         */
-        String applyLeave(String userId, String leaveType, String startDate, String endDate, int totalDays,
-                        String reason) throws RemoteException;
-
         /**
          * Get all leave applications for a specific employee
          *
@@ -200,31 +206,64 @@ public interface AuthInterface extends Remote {
         String getAllPendingLeaves() throws RemoteException;
 
         /**
-         * Approve a leave request
+         * Generate yearly leave report
+         * Aggregates all leave data for the specified year and exports to text file
+         *
+         * @param year       Year to generate report for (e.g., "2026")
+         * @param outputPath File path to save report (if null, uses current directory)
+         * @return Success/error message with file path
+         */
+        String generateYearlyReport(String year, String outputPath) throws RemoteException;
+
+        // ==================== SESSION-CHECKED CALLS ====================
+        // The caller is resolved from the session token on the server, so a
+        // client cannot act as another user or use HR operations without the
+        // HR role. An invalid/expired token or a missing role throws
+        // java.rmi.AccessException (wrapped in a ServerException by RMI).
+
+        /**
+         * Apply for leave as the user of this session
+         * Creates a new leave request with status "Pending"
+         *
+         * @param token     Session token from openSession
+         * @param leaveType Type of leave ("annual" | "emergency" | "medical")
+         * @param startDate Start date of leave (format: YYYY-MM-DD)
+         * @param endDate   End date of leave (format: YYYY-MM-DD)
+         * @param totalDays Total number of leave days
+         * @param reason    Reason for leave
+         * @return Success/error message
+         */
+        String applyOwnLeave(String token, String leaveType, String startDate, String endDate, int totalDays,
+                        String reason) throws RemoteException;
+
+        /**
+         * Approve a leave request (HR sessions only)
          * Checks if employee has sufficient balance before approving
          * Deducts leave days from appropriate leave type upon approval
          *
+         * @param token   Session token from openSession
          * @param leaveId Leave request ID
          * @return Success/error message
          */
-        String approveLeave(String leaveId) throws RemoteException;
+        String approveLeave(String token, String leaveId) throws RemoteException;
 
         /**
-         * Reject a leave request
+         * Reject a leave request (HR sessions only)
          * No balance deduction occurs when rejecting
          *
+         * @param token   Session token from openSession
          * @param leaveId Leave request ID
          * @return Success/error message
          */
-        String rejectLeave(String leaveId) throws RemoteException;
+        String rejectLeave(String token, String leaveId) throws RemoteException;
 
         /**
-         * Generate yearly leave report
-         * Aggregates all leave data for the specified year and exports to text file
+         * Delete employee from system (removes from Auth + Firestore + Payroll)
+         * HR sessions only; the employee's own sessions are closed
          *
-         * @param year       Year to generate report for (e.g., "2026")
-         * @param outputPath File path to save report (if null, uses current directory)
-         * @return Success/error message with file path
+         * @param token Session token from openSession
+         * @param uid   Employee's unique ID
+         * @return true if successful, false if failed
          */
-        String generateYearlyReport(String year, String outputPath) throws RemoteException;
+        boolean deleteEmployee(String token, String uid) throws RemoteException;
 }
@@ -1,14 +1,27 @@
 package server;
 
 import database.AuthService;
+import model.Employee;
+import model.LeaveBalance;
+import model.LeaveDecision;
+import model.LeaveRequest;
+import model.Page;
+import model.PayrollEntry;
+import model.Session;
+
 import java.rmi.RemoteException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 /**
  * AuthServiceImpl - Remote Object Implementation
  *
- * This class implements the AuthInterface and provides the actual
- * functionality.
+ * This class implements the AuthInterface (formatted text) and the
+ * HrmDataInterface (typed records) and provides the actual functionality.
  * - Extends UnicastRemoteObject to make it a remote object (can be called
  * remotely)
  * - Implements AuthInterface (the contract)
@@ -16,12 +29,38 @@ import java.rmi.server.UnicastRemoteObject;
  * (AuthService)
  *
  * Flow: Client -> AuthInterface -> AuthServiceImpl -> AuthService -> Firebase
+ *
+ * Every remote method runs through metrics.time()/run(), which records its
+ * latency (and errors) per operation - see OperationMetrics. Methods that
+ * report failures as a return value pass a predicate so those count as errors.
  */
-public class AuthServiceImpl extends UnicastRemoteObject implements AuthInterface {
+public class AuthServiceImpl extends UnicastRemoteObject implements AuthInterface, HrmDataInterface {
 
     // The actual business logic class that handles Firebase operations
     private final AuthService authService;
 
+    // Logged-in users (token -> uid/role), kept in memory on this server
+    private final SessionManager sessions = new SessionManager();
+
+    // Pushes leave events to subscribed HR clients
+    private final LeaveEventBus leaveEvents = new LeaveEventBus(token -> sessions.get(token) != null);
+
+    // Latency histogram per remote method (also published as MBeans)
+    private final OperationMetrics metrics = new OperationMetrics();
+
+    // Results that count as errors for methods reporting failures as a value
+    private static final Predicate<Boolean> FALSE = success -> !success;
+    private static final Predicate<LeaveDecision> DECLINED = decision -> !decision.success();
+    private static final Predicate<List<LeaveDecision>> ANY_DECLINED = decisions -> decisions.stream()
+            .anyMatch(DECLINED);
+
+    /**
+     * Messages from AuthService start with a fixed text on success
+     */
+    private static Predicate<String> unlessStartsWith(String successPrefix) {
+        return message -> message == null || !message.startsWith(successPrefix);
+    }
+
     /**
      * Constructor - must throw RemoteException
      * super() exports this object so it can receive remote calls
@@ -29,6 +68,69 @@ public class AuthServiceImpl extends UnicastRemoteObject implements AuthInterfac
     public AuthServiceImpl() throws RemoteException {
         super(); // Export this object for remote access
         authService = new AuthService(); // Create instance of business logic
+        authService.setLeaveEventSink(leaveEvents::publish);
+        sessions.setCloseListener(leaveEvents::unsubscribeSession);
+    }
+
+    /**
+     * Constructor - export with custom sockets (e.g. compressed transport)
+     * The client factory is shipped to clients inside the stub
+     */
+    public AuthServiceImpl(RMIClientSocketFactory csf, RMIServerSocketFactory ssf) throws RemoteException {
+        super(0, csf, ssf); // Export on an anonymous port with the given sockets
+        authService = new AuthService();
+        authService.setLeaveEventSink(leaveEvents::publish);
+        sessions.setCloseListener(leaveEvents::unsubscribeSession);
+    }
+
+    /**
+     * Initialise the Firebase Admin SDK now instead of on the first admin operation
+     *
+     * @return true if ready
+     */
+    boolean initFirebaseAdmin() {
+        return authService.initFirebaseAdmin();
+    }
+
+    /**
+     * Register this server's periodic batch jobs (run only on the leader node)
+     * - Leave balance year rollover (hrm.scheduler.rolloverMs, default 3600000)
+     * - Yearly report written to hrm.scheduler.reportDir (hrm.scheduler.reportMs,
+     *   default 86400000; 0 = off)
+     */
+    void scheduleJobs(JobScheduler scheduler) {
+        scheduler.schedule("leave-rollover", Long.getLong("hrm.scheduler.rolloverMs", 3_600_000), () -> {
+            try {
+                int reset = authService.rolloverLeaveBalances();
+                if (reset > 0) {
+                    System.out.println("[SCHED] Reset " + reset + " leave balance(s) for the new year");
+                }
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        });
+        String reportDir = System.getProperty("hrm.scheduler.reportDir", "reports");
+        scheduler.schedule("yearly-report", Long.getLong("hrm.scheduler.reportMs", 86_400_000), () -> {
+            new java.io.File(reportDir).mkdirs();
+            String year = String.valueOf(java.time.Year.now().getValue());
+            System.out.println("[SCHED] " + authService.generateYearlyReport(year, reportDir));
+        });
+    }
+
+    /**
+     * One-line summary of the leave event subscribers for the health monitor
+     */
+    public String getEventStats() {
+        return leaveEvents.getStats();
+    }
+
+    /**
+     * Latency summary of the busiest remote operations for the health monitor
+     *
+     * @param limit Max number of operations listed
+     */
+    public List<String> getOperationStats(int limit) {
+        return metrics.summary(limit);
     }
 
     // ==================== AUTHENTICATION METHODS ====================
@@ -37,18 +139,49 @@ public class AuthServiceImpl extends UnicastRemoteObject implements AuthInterfac
     @Override
     public String login(String email, String password) throws RemoteException {
         System.out.println("Server: Login request for " + email);
-        return authService.login(email, password); // Delegates to AuthService
+        return metrics.time("login", () -> authService.login(email, password), // Delegates to AuthService
+                Objects::isNull);
+    }
+
+    @Override
+    public Session openSession(String email, String password) throws RemoteException {
+        System.out.println("Server: Login request for " + email);
+        return metrics.time("openSession", () -> {
+            String uid = authService.login(email, password);
+            if (uid == null) {
+                return null;
+            }
+            String role = authService.getRole(uid); // Resolved once, kept in the session
+            if (role == null) {
+                return null;
+            }
+            return sessions.open(uid, email, role);
+        }, Objects::isNull);
+    }
+
+    @Override
+    public Session getSession(String token) throws RemoteException {
+        return metrics.time("getSession", () -> sessions.get(token));
+    }
+
+    @Override
+    public void logout(String token) throws RemoteException {
+        System.out.println("Server: [auth] logout");
+        metrics.run("logout", () -> sessions.close(token));
     }
 
     @Override
     public String getRole(String uid) throws RemoteException {
         System.out.println("Server: [auth] get-role");
-        return authService.getRole(uid); // Gets role from Firestore
+        return metrics.time("getRole", () -> {
+            String role = sessions.findRole(uid); // Logged-in users: answered from memory
+            return role != null ? role : authService.getRole(uid);
+        });
     }
 
     @Override
     public void printConnection() throws RemoteException {
-        System.out.println("==> A new Client has connected!");
+        metrics.run("printConnection", () -> System.out.println("==> A new Client has connected!"));
     }
 
     // ==================== EMPLOYEE CRUD METHODS ====================
@@ -57,45 +190,60 @@ public class AuthServiceImpl extends UnicastRemoteObject implements AuthInterfac
     @Override
     public String getAllEmployees() throws RemoteException {
         System.out.println("Server: Getting all employees");
-        return authService.getAllEmployees();
+        return metrics.time("getAllEmployees", () -> authService.getAllEmployees());
     }
 
     @Override
     public String addEmployee(String email, String password, String firstName, String lastName, String icPassport,
             String role) throws RemoteException {
         System.out.println("Server: Adding employee - " + email);
-        return authService.addEmployee(email, password, firstName, lastName, icPassport, role);
+        return metrics.time("addEmployee",
+                () -> authService.addEmployee(email, password, firstName, lastName, icPassport, role),
+                unlessStartsWith("Employee added successfully"));
     }
 
     @Override
     public String getEmployeeByUid(String uid) throws RemoteException {
         System.out.println("Server: [employee] view");
-        return authService.getEmployeeByUid(uid);
+        return metrics.time("getEmployeeByUid", () -> authService.getEmployeeByUid(uid));
     }
 
     @Override
     public boolean updateEmployee(String uid, String firstName, String lastName, String icPassport, String role)
             throws RemoteException {
         System.out.println("Server: [employee] update");
-        return authService.updateEmployee(uid, firstName, lastName, icPassport, role);
+        return metrics.time("updateEmployee", () -> {
+            boolean success = authService.updateEmployee(uid, firstName, lastName, icPassport, role);
+            if (success) {
+                sessions.updateRole(uid, role);
+            }
+            return success;
+        }, FALSE);
     }
 
     @Override
     public String updateOwnProfile(String uid, String email, String firstName, String lastName, String icPassport)
             throws RemoteException {
         System.out.println("Server: [employee] update-own-profile");
-        return authService.updateOwnProfile(uid, email, firstName, lastName, icPassport);
+        return metrics.time("updateOwnProfile",
+                () -> authService.updateOwnProfile(uid, email, firstName, lastName, icPassport),
+                unlessStartsWith("SUCCESS"));
     }
 
     @Override
     public String getEmployeeRaw(String uid) throws RemoteException {
-        return authService.getEmployeeRaw(uid);
+        return metrics.time("getEmployeeRaw", () -> authService.getEmployeeRaw(uid));
     }
 
-    @Override
-    public boolean deleteEmployee(String uid) throws RemoteException {
+    private boolean deleteEmployee(String uid) throws RemoteException {
         System.out.println("Server: [employee] delete");
-        return authService.deleteEmployee(uid);
+        return metrics.time("deleteEmployee", () -> {
+            boolean success = authService.deleteEmployee(uid);
+            if (success) {
+                sessions.closeAll(uid);
+            }
+            return success;
+        }, FALSE);
     }
 
     // ==================== PAYROLL CRUD METHODS ====================
@@ -104,66 +252,69 @@ public class AuthServiceImpl extends UnicastRemoteObject implements AuthInterfac
     @Override
     public String getAllPayroll() throws RemoteException {
         System.out.println("Server: Getting all payroll entries");
-        return authService.getAllPayroll();
+        return metrics.time("getAllPayroll", () -> authService.getAllPayroll());
     }
 
     @Override
     public String getPayrollByUserId(String userId) throws RemoteException {
         System.out.println("Server: [payroll] view");
-        return authService.getPayrollByUserId(userId);
+        return metrics.time("getPayrollByUserId", () -> authService.getPayrollByUserId(userId));
     }
 
     @Override
     public String addPayroll(String userId, double salary, String monthEntry, String yearEntry) throws RemoteException {
         System.out.println("Server: [payroll] add");
-        return authService.addPayroll(userId, salary, monthEntry, yearEntry);
+        return metrics.time("addPayroll", () -> authService.addPayroll(userId, salary, monthEntry, yearEntry),
+                unlessStartsWith("Payroll entry added successfully"));
     }
 
     @Override
     public boolean updatePayroll(String payrollId, double salary, String monthEntry, String yearEntry)
             throws RemoteException {
         System.out.println("Server: [payroll] update");
-        return authService.updatePayroll(payrollId, salary, monthEntry, yearEntry);
+        return metrics.time("updatePayroll", () -> authService.updatePayroll(payrollId, salary, monthEntry, yearEntry),
+                FALSE);
     }
 
     @Override
     public boolean deletePayroll(String payrollId) throws RemoteException {
         System.out.println("Server: [payroll] delete");
-        return authService.deletePayroll(payrollId);
+        return metrics.time("deletePayroll", () -> authService.deletePayroll(payrollId), FALSE);
     }
 
     // ==================== LEAVE MANAGEMENT METHODS ====================
     // These methods delegate to AuthService which handles Leaves collection
 
-    @Override
-    public String applyLeave(String userId, String leaveType, String startDate, String endDate, int totalDays,
+    private String applyLeave(String userId, String leaveType, String startDate, String endDate, int totalDays,
             String reason) throws RemoteException {
         System.out.println("Server: [leave] apply");
-        return authService.applyLeave(userId, leaveType, startDate, endDate, totalDays, reason);
+        return metrics.time("applyLeave",
+                () -> authService.applyLeave(userId, leaveType, startDate, endDate, totalDays, reason),
+                unlessStartsWith("Leave application submitted successfully"));
     }
 
     @Override
     public String getLeavesByUserId(String userId) throws RemoteException {
         System.out.println("Server: [leave] history");
-        return authService.getLeavesByUserId(userId);
+        return metrics.time("getLeavesByUserId", () -> authService.getLeavesByUserId(userId));
     }
 
     @Override
     public String getLeaveBalance(String userId) throws RemoteException {
         System.out.println("Server: [leave] balance");
-        return authService.getLeaveBalance(userId);
+        return metrics.time("getLeaveBalance", () -> authService.getLeaveBalance(userId));
     }
 
     @Override
     public java.util.Map<String, Integer> getLeaveBalanceData(String userId) throws RemoteException {
         System.out.println("Server: [leave] balance-data");
-        return authService.getLeaveBalanceData(userId);
+        return metrics.time("getLeaveBalanceData", () -> authService.getLeaveBalanceData(userId));
     }
 
     @Override
     public boolean checkAndResetLeaveBalance(String userId) throws RemoteException {
         System.out.println("Server: [leave] check-reset");
-        return authService.checkAndResetLeaveBalance(userId);
+        return metrics.time("checkAndResetLeaveBalance", () -> authService.checkAndResetLeaveBalance(userId));
     }
 
     // ==================== HR LEAVE MANAGEMENT ====================
@@ -171,24 +322,207 @@ public class AuthServiceImpl extends UnicastRemoteObject implements AuthInterfac
     @Override
     public String getAllPendingLeaves() throws RemoteException {
         System.out.println("Server: Getting all pending leave requests");
-        return authService.getAllPendingLeaves();
+        return metrics.time("getAllPendingLeaves", () -> authService.getAllPendingLeaves());
     }
 
-    @Override
-    public String approveLeave(String leaveId) throws RemoteException {
+    private String approveLeave(String leaveId) throws RemoteException {
         System.out.println("Server: [leave] approve");
-        return authService.approveLeave(leaveId);
+        return metrics.time("approveLeave", () -> authService.decideLeave(leaveId, true), DECLINED).message();
     }
 
-    @Override
-    public String rejectLeave(String leaveId) throws RemoteException {
+    private String rejectLeave(String leaveId) throws RemoteException {
         System.out.println("Server: [leave] reject");
-        return authService.rejectLeave(leaveId);
+        return metrics.time("rejectLeave", () -> authService.decideLeave(leaveId, false), DECLINED).message();
     }
 
     @Override
     public String generateYearlyReport(String year, String outputPath) throws RemoteException {
         System.out.println("Server: Generating yearly report for " + year);
-        return authService.generateYearlyReport(year, outputPath);
+        return metrics.time("generateYearlyReport", () -> authService.generateYearlyReport(year, outputPath),
+                unlessStartsWith("Report generated successfully"));
+    }
+
+    // ==================== TYPED DATA METHODS (HrmDataInterface) ====================
+    // Return records instead of formatted text; IOException becomes RemoteException
+
+    @Override
+    public List<Employee> listEmployees() throws RemoteException {
+        System.out.println("Server: [employee] list");
+        return metrics.time("listEmployees", () -> {
+            try {
+                return authService.listEmployees();
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to get employees.", e);
+            }
+        });
+    }
+
+    @Override
+    public Page<Employee> listEmployeesPage(int pageSize, String cursor, String sortKey, String role)
+            throws RemoteException {
+        System.out.println("Server: [employee] list-page");
+        return metrics.time("listEmployeesPage", () -> {
+            try {
+                return authService.listEmployeesPage(pageSize, cursor, sortKey, role);
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to get employees.", e);
+            }
+        });
+    }
+
+    @Override
+    public Employee getEmployee(String uid) throws RemoteException {
+        System.out.println("Server: [employee] get");
+        return metrics.time("getEmployee", () -> authService.findEmployee(uid));
+    }
+
+    @Override
+    public List<PayrollEntry> listPayroll() throws RemoteException {
+        System.out.println("Server: [payroll] list");
+        return metrics.time("listPayroll", () -> {
+            try {
+                return authService.listPayroll();
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to get payroll entries.", e);
+            }
+        });
+    }
+
+    @Override
+    public Page<PayrollEntry> listPayrollPage(int pageSize, String cursor, String sortKey, String year,
+            String month) throws RemoteException {
+        System.out.println("Server: [payroll] list-page");
+        return metrics.time("listPayrollPage", () -> {
+            try {
+                return authService.listPayrollPage(pageSize, cursor, sortKey, year, month);
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to get payroll entries.", e);
+            }
+        });
+    }
+
+    @Override
+    public List<PayrollEntry> listPayrollByUserId(String userId) throws RemoteException {
+        System.out.println("Server: [payroll] list-by-user");
+        return metrics.time("listPayrollByUserId", () -> {
+            try {
+                return authService.listPayrollByUserId(userId);
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to get payroll entries.", e);
+            }
+        });
+    }
+
+    @Override
+    public List<LeaveRequest> listPendingLeaves() throws RemoteException {
+        System.out.println("Server: [leave] list-pending");
+        return metrics.time("listPendingLeaves", () -> {
+            try {
+                return authService.listPendingLeaves();
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to fetch pending leave requests.", e);
+            }
+        });
+    }
+
+    @Override
+    public Page<LeaveRequest> listPendingLeavesPage(int pageSize, String cursor, String sortKey, String leaveType)
+            throws RemoteException {
+        System.out.println("Server: [leave] list-pending-page");
+        return metrics.time("listPendingLeavesPage", () -> {
+            try {
+                return authService.listPendingLeavesPage(pageSize, cursor, sortKey, leaveType);
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to fetch pending leave requests.", e);
+            }
+        });
+    }
+
+    @Override
+    public List<LeaveRequest> listLeavesByUserId(String userId) throws RemoteException {
+        System.out.println("Server: [leave] list-by-user");
+        return metrics.time("listLeavesByUserId", () -> {
+            try {
+                return authService.listLeavesByUserId(userId);
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to get leave history.", e);
+            }
+        });
+    }
+
+    @Override
+    public LeaveBalance getLeaveBalanceRecord(String userId) throws RemoteException {
+        System.out.println("Server: [leave] balance-record");
+        return metrics.time("getLeaveBalanceRecord", () -> {
+            try {
+                return authService.findLeaveBalance(userId);
+            } catch (java.io.IOException e) {
+                throw new RemoteException("Failed to get leave balance.", e);
+            }
+        });
+    }
+
+    private List<LeaveDecision> approveLeaves(List<String> leaveIds) throws RemoteException {
+        System.out.println("Server: [leave] approve-bulk (" + leaveIds.size() + ")");
+        return metrics.time("approveLeaves", () -> authService.approveLeaves(leaveIds), ANY_DECLINED);
+    }
+
+    private List<LeaveDecision> rejectLeaves(List<String> leaveIds) throws RemoteException {
+        System.out.println("Server: [leave] reject-bulk (" + leaveIds.size() + ")");
+        return metrics.time("rejectLeaves", () -> authService.rejectLeaves(leaveIds), ANY_DECLINED);
+    }
+
+    // ==================== SESSION-CHECKED CALLS ====================
+    // Resolve the caller from the session table (memory), then run the private
+    // method above; only these variants are exported
+
+    @Override
+    public String applyOwnLeave(String token, String leaveType, String startDate, String endDate, int totalDays,
+            String reason) throws RemoteException {
+        Session session = sessions.require(token);
+        return applyLeave(session.uid(), leaveType, startDate, endDate, totalDays, reason);
+    }
+
+    @Override
+    public String approveLeave(String token, String leaveId) throws RemoteException {
+        sessions.requireHr(token);
+        return approveLeave(leaveId);
+    }
+
+    @Override
+    public String rejectLeave(String token, String leaveId) throws RemoteException {
+        sessions.requireHr(token);
+        return rejectLeave(leaveId);
+    }
+
+    @Override
+    public boolean deleteEmployee(String token, String uid) throws RemoteException {
+        sessions.requireHr(token);
+        return deleteEmployee(uid);
+    }
+
+    @Override
+    public List<LeaveDecision> approveLeaves(String token, List<String> leaveIds) throws RemoteException {
+        sessions.requireHr(token);
+        return approveLeaves(leaveIds);
+    }
+
+    @Override
+    public List<LeaveDecision> rejectLeaves(String token, List<String> leaveIds) throws RemoteException {
+        sessions.requireHr(token);
+        return rejectLeaves(leaveIds);
+    }
+
+    @Override
+    public void addLeaveListener(String token, LeaveEventListener listener) throws RemoteException {
+        System.out.println("Server: [events] subscribe");
+        sessions.requireHr(token);
+        metrics.run("addLeaveListener", () -> leaveEvents.subscribe(token, listener));
+    }
+
+    @Override
+    public void removeLeaveListener(LeaveEventListener listener) throws RemoteException {
+        System.out.println("Server: [events] unsubscribe");
+        metrics.run("removeLeaveListener", () -> leaveEvents.unsubscribe(listener));
     }
 }
@@ -0,0 +1,44 @@
+package server;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+
+/**
+ * CompressingClientSocketFactory - Client half of the compressed RMI transport
+ *
+ * The server exports AuthServiceImpl with this factory, so it travels inside
+ * the stub: RMIClient picks it up from the registry lookup and needs no
+ * setting of its own. The compression threshold is chosen by the server.
+ */
+public final class CompressingClientSocketFactory implements RMIClientSocketFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int threshold;
+
+    /**
+     * @param threshold Smallest message (bytes) that is compressed
+     */
+    public CompressingClientSocketFactory(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return new CompressingSocket(host, port, threshold);
+    }
+
+    // RMI reuses connections only for equal factories
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompressingClientSocketFactory other && other.threshold == threshold;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(threshold) + 31;
+    }
+}
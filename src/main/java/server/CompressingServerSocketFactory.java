@@ -0,0 +1,46 @@
+package server;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIServerSocketFactory;
+
+/**
+ * CompressingServerSocketFactory - Server half of the compressed RMI transport
+ *
+ * Accepted connections are CompressingSockets, matching the sockets created
+ * by CompressingClientSocketFactory on the client.
+ */
+public final class CompressingServerSocketFactory implements RMIServerSocketFactory {
+
+    private final int threshold;
+
+    /**
+     * @param threshold Smallest message (bytes) that is compressed
+     */
+    public CompressingServerSocketFactory(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new ServerSocket(port) {
+            @Override
+            public Socket accept() throws IOException {
+                Socket socket = new CompressingSocket(threshold);
+                implAccept(socket);
+                return socket;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CompressingServerSocketFactory other && other.threshold == threshold;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(threshold) + 17;
+    }
+}
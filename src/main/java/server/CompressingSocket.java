@@ -0,0 +1,247 @@
+package server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * CompressingSocket - Socket whose streams exchange deflate-compressed frames
+ *
+ * Everything written between two flush() calls (RMI flushes once per call
+ * and once per result) becomes one frame:
+ *   [type: 1 byte][length: int][payload]
+ * Frames of at least `threshold` bytes are deflated (type 1) if that makes
+ * them smaller; small ones are sent as-is (type 0), so short calls do not
+ * pay for compression. Both ends must use this socket.
+ */
+class CompressingSocket extends Socket {
+
+    // Largest frame buffered before it is written out without waiting for flush()
+    private static final int MAX_FRAME = 64 * 1024;
+
+    private static final int RAW = 0;
+    private static final int DEFLATED = 1;
+
+    private final int threshold;
+    private InputStream in;
+    private OutputStream out;
+
+    /**
+     * Unconnected socket, for ServerSocket.implAccept
+     */
+    CompressingSocket(int threshold) {
+        this.threshold = threshold;
+    }
+
+    CompressingSocket(String host, int port, int threshold) throws IOException {
+        super(host, port);
+        this.threshold = threshold;
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (in == null) {
+            in = new FrameInputStream(super.getInputStream());
+        }
+        return in;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (out == null) {
+            out = new FrameOutputStream(super.getOutputStream(), threshold);
+        }
+        return out;
+    }
+
+    /**
+     * FrameOutputStream - Buffers writes and emits one frame per flush
+     */
+    private static final class FrameOutputStream extends FilterOutputStream {
+        private final int threshold;
+        private final DataOutputStream data;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final byte[] buffer = new byte[MAX_FRAME];
+        private final byte[] compressed = new byte[MAX_FRAME];
+        private int count;
+
+        FrameOutputStream(OutputStream out, int threshold) {
+            super(out);
+            this.threshold = threshold;
+            this.data = new DataOutputStream(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                writeFrame();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    writeFrame();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeFrame();
+            data.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                deflater.end();
+                data.close();
+            }
+        }
+
+        private void writeFrame() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            int compressedLength = count >= threshold ? deflate() : -1;
+            if (compressedLength > 0 && compressedLength < count) {
+                data.writeByte(DEFLATED);
+                data.writeInt(compressedLength);
+                data.write(compressed, 0, compressedLength);
+            } else {
+                data.writeByte(RAW);
+                data.writeInt(count);
+                data.write(buffer, 0, count);
+            }
+            count = 0;
+        }
+
+        /**
+         * @return Deflated length, or -1 if it would not be smaller than the input
+         */
+        private int deflate() {
+            deflater.reset();
+            deflater.setInput(buffer, 0, count);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    return -1; // Incompressible: output already as large as the input
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            return length;
+        }
+    }
+
+    /**
+     * FrameInputStream - Reads frames, inflating compressed ones
+     */
+    private static final class FrameInputStream extends InputStream {
+        private final DataInputStream data;
+        private final Inflater inflater = new Inflater();
+        private final byte[] frame = new byte[MAX_FRAME];
+        private final byte[] compressed = new byte[MAX_FRAME];
+        private int pos;
+        private int limit;
+
+        FrameInputStream(InputStream in) {
+            this.data = new DataInputStream(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == limit && !nextFrame()) {
+                return -1;
+            }
+            return frame[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos == limit && !nextFrame()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(frame, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            data.close();
+        }
+
+        /**
+         * @return false at end of stream
+         */
+        private boolean nextFrame() throws IOException {
+            int type = data.read();
+            if (type < 0) {
+                return false;
+            }
+            int length = data.readInt();
+            if (length < 0 || length > MAX_FRAME) {
+                throw new IOException("Corrupt compressed frame (length " + length + ")");
+            }
+
+            if (type == RAW) {
+                data.readFully(frame, 0, length);
+                limit = length;
+            } else if (type == DEFLATED) {
+                data.readFully(compressed, 0, length);
+                limit = inflate(length);
+            } else {
+                throw new IOException("Corrupt compressed frame (type " + type + ")");
+            }
+            pos = 0;
+            return true;
+        }
+
+        private int inflate(int length) throws IOException {
+            inflater.reset();
+            inflater.setInput(compressed, 0, length);
+            int total = 0;
+            try {
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(frame, total, frame.length - total);
+                    if (n == 0 && (inflater.needsInput() || total == frame.length)) {
+                        throw new EOFException("Truncated compressed frame");
+                    }
+                    total += n;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt compressed frame", e);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package server;
+
+import model.Employee;
+import model.LeaveBalance;
+import model.LeaveDecision;
+import model.LeaveRequest;
+import model.Page;
+import model.PayrollEntry;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * HrmDataInterface - Typed Remote Interface for RMI
+ *
+ * Second contract next to AuthInterface. Instead of pre-formatted text it
+ * returns compact serializable records (package model), so:
+ * - the server does no per-call string formatting
+ * - the client menus render the data and never parse text or raw JSON
+ *
+ * The same remote object (bound as "AuthService") implements both
+ * interfaces, so the stub from one registry lookup can be cast to either.
+ * Data access failures are reported as RemoteException.
+ *
+ * The *Page methods return one bounded, server-sorted page plus an opaque
+ * nextCursor; pass it back to get the next page (null = last page). An
+ * unknown sort key, a bad cursor or an invalid filter value (e.g. month 13)
+ * throws IllegalArgumentException.
+ */
+public interface HrmDataInterface extends Remote {
+
+        // ==================== EMPLOYEES ====================
+
+        /**
+         * Get all employees (HR only) - users with role "employee"
+         */
+        List<Employee> listEmployees() throws RemoteException;
+
+        /**
+         * Get a single user by UID
+         *
+         * @return Employee, or null if not found
+         */
+        Employee getEmployee(String uid) throws RemoteException;
+
+        /**
+         * Get one page of users (HR only)
+         *
+         * @param pageSize Items per page (capped at 100)
+         * @param cursor   nextCursor of the previous page, or null for the first
+         * @param sortKey  email, first_name or last_name; prefix "-" for descending
+         * @param role     Only this role (e.g. "employee"), or null for all users
+         */
+        Page<Employee> listEmployeesPage(int pageSize, String cursor, String sortKey, String role)
+                        throws RemoteException;
+
+        // ==================== PAYROLL ====================
+
+        /**
+         * Get all payroll entries (HR only)
+         */
+        List<PayrollEntry> listPayroll() throws RemoteException;
+
+        /**
+         * Get payroll history for a specific employee
+         */
+        List<PayrollEntry> listPayrollByUserId(String userId) throws RemoteException;
+
+        /**
+         * Get one page of payroll entries (HR only)
+         *
+         * @param sortKey year, month, salary or userid; prefix "-" for descending
+         *                (default "-year")
+         * @param year    Only this year, or null
+         * @param month   Only this month (1-12), or null
+         */
+        Page<PayrollEntry> listPayrollPage(int pageSize, String cursor, String sortKey, String year,
+                        String month) throws RemoteException;
+
+        // ==================== LEAVE ====================
+
+        /**
+         * Get all pending leave requests (HR only)
+         */
+        List<LeaveRequest> listPendingLeaves() throws RemoteException;
+
+        /**
+         * Get one page of pending leave requests (HR only)
+         *
+         * @param sortKey   created, start, days or type; prefix "-" for descending
+         *                  (default "created", oldest first)
+         * @param leaveType Only this leave type (annual/emergency/medical), or null
+         */
+        Page<LeaveRequest> listPendingLeavesPage(int pageSize, String cursor, String sortKey, String leaveType)
+                        throws RemoteException;
+
+        /**
+         * Get all leave requests of a specific employee
+         */
+        List<LeaveRequest> listLeavesByUserId(String userId) throws RemoteException;
+
+        /**
+         * Get leave balance for a specific employee
+         * Also checks and resets if new year has begun
+         *
+         * @return LeaveBalance, or null if the employee has none
+         */
+        LeaveBalance getLeaveBalanceRecord(String userId) throws RemoteException;
+
+        /**
+         * Approve many leave requests in one call (HR sessions only)
+         * Different employees are processed in parallel; one employee's
+         * requests are processed in order so balances stay correct
+         *
+         * @param token    Session token from openSession
+         * @param leaveIds Leave request IDs (duplicates are ignored)
+         * @return One outcome per distinct ID, in input order
+         * @throws java.rmi.AccessException if the session is invalid or not HR
+         */
+        List<LeaveDecision> approveLeaves(String token, List<String> leaveIds) throws RemoteException;
+
+        /**
+         * Reject many leave requests in one call (HR sessions only)
+         *
+         * @param token    Session token from openSession
+         * @param leaveIds Leave request IDs (duplicates are ignored)
+         * @return One outcome per distinct ID, in input order
+         * @throws java.rmi.AccessException if the session is invalid or not HR
+         */
+        List<LeaveDecision> rejectLeaves(String token, List<String> leaveIds) throws RemoteException;
+
+        // ==================== LEAVE EVENTS (push) ====================
+
+        /**
+         * Subscribe to leave events (applied / approved / rejected), HR sessions only
+         * The listener must be an exported remote object on the client; it is
+         * unsubscribed when the session is closed or expires
+         *
+         * @param token Session token from openSession
+         * @throws java.rmi.AccessException if the session is invalid or not HR
+         */
+        void addLeaveListener(String token, LeaveEventListener listener) throws RemoteException;
+
+        /**
+         * Unsubscribe a listener added with addLeaveListener
+         */
+        void removeLeaveListener(LeaveEventListener listener) throws RemoteException;
+}
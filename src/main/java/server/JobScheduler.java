@@ -0,0 +1,220 @@
+package server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import database.FirestoreClient;
+import database.FirestoreWrite;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JobScheduler - Periodic background jobs, run by one server node at a time
+ *
+ * All nodes schedule the same jobs, but a job only runs on the node that
+ * currently holds the leader lease, so batch work runs once per cluster.
+ * - The lease is the Firestore document Scheduler_Lease/leader
+ *   {holder, expiresAt}. A node takes it when it is missing or expired (or
+ *   already its own) with a commit guarded by the document's updateTime, so
+ *   two nodes can never both win the same round
+ * - The leader renews it every hrm.scheduler.renewMs; if the leader dies the
+ *   lease expires after hrm.scheduler.leaseMs and another node takes over
+ * - On shutdown the leader releases the lease for an immediate hand-over,
+ *   guarded by the updateTime of its last renewal, so a lease another node
+ *   has taken meanwhile is left alone
+ * - Lease renewal and jobs use separate threads, so a long job cannot make
+ *   the lease lapse
+ *
+ * With -Dhrm.scheduler.localLease=true (single node / development) no lease
+ * document is used and this node is always the leader.
+ *
+ * Settings (system properties):
+ * - hrm.scheduler.leaseMs     How long a lease is valid (default 30000)
+ * - hrm.scheduler.renewMs     How often the lease is taken/renewed (default 10000)
+ * - hrm.scheduler.localLease  Always leader, no Firestore lease (default false)
+ */
+class JobScheduler {
+
+    private static final long LEASE_MS = Long.getLong("hrm.scheduler.leaseMs", 30_000);
+    private static final long RENEW_MS = Long.getLong("hrm.scheduler.renewMs", 10_000);
+    private static final boolean LOCAL_LEASE = Boolean.getBoolean("hrm.scheduler.localLease");
+
+    private static final String LEASE_COLLECTION = "Scheduler_Lease";
+    private static final String LEASE_DOC = "leader";
+
+    private final String nodeId;
+    private final FirestoreClient http = FirestoreClient.getInstance();
+
+    private final ScheduledExecutorService leaseThread = daemonExecutor("scheduler-lease");
+    private final ScheduledExecutorService jobThread = daemonExecutor("scheduler-jobs");
+
+    // Leader until this time (local clock); 0 = not leader
+    private volatile long leaderUntil;
+    private volatile String currentHolder = "?";
+    // updateTime of the lease document after our last successful write; null = not ours
+    private volatile String leaseUpdateTime;
+    private final LongAdder jobRuns = new LongAdder();
+    private final LongAdder jobFailures = new LongAdder();
+
+    /**
+     * @param nodeId Unique name of this node, e.g. host:port
+     */
+    JobScheduler(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Run job every intervalMs on the leader (first run after one interval)
+     *
+     * @param intervalMs Delay between runs; 0 or less disables the job
+     */
+    void schedule(String name, long intervalMs, Runnable job) {
+        if (intervalMs <= 0) {
+            return;
+        }
+        jobThread.scheduleWithFixedDelay(() -> runIfLeader(name, job), intervalMs, intervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    void start() {
+        leaseThread.scheduleWithFixedDelay(this::renewLease, 0, RENEW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop running jobs and give the lease up if we hold it
+     */
+    void shutdown() {
+        jobThread.shutdownNow();
+        leaseThread.shutdownNow();
+        String updateTime = leaseUpdateTime;
+        if (isLeader() && !LOCAL_LEASE && updateTime != null) {
+            leaderUntil = 0;
+            try {
+                // Expired now: the next node to renew takes over. Fails the precondition
+                // if someone else has written the lease since; nothing to release then
+                writeLease(0, updateTime);
+            } catch (java.io.IOException | RuntimeException e) {
+                // Lease simply runs out
+            }
+        }
+    }
+
+    boolean isLeader() {
+        return System.currentTimeMillis() < leaderUntil;
+    }
+
+    /**
+     * One-line summary for the server health monitor
+     */
+    String getStats() {
+        return "leader=" + (isLeader() ? "this node" : currentHolder) + "  jobRuns=" + jobRuns.sum()
+                + "  jobFailures=" + jobFailures.sum();
+    }
+
+    private void runIfLeader(String name, Runnable job) {
+        if (!isLeader()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            job.run();
+            jobRuns.increment();
+            System.out.println("[SCHED] " + name + " done in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (RuntimeException e) {
+            jobFailures.increment();
+            System.out.println("[SCHED] " + name + " failed: " + e.getMessage());
+        }
+    }
+
+    // ==================== LEASE ====================
+
+    private void renewLease() {
+        if (LOCAL_LEASE) {
+            leaderUntil = Long.MAX_VALUE;
+            currentHolder = nodeId;
+            return;
+        }
+        boolean wasLeader = isLeader();
+        long now = System.currentTimeMillis();
+        try {
+            FirestoreClient.Response res = http.get(
+                    FirestoreClient.DOCUMENTS_URL + "/" + LEASE_COLLECTION + "/" + LEASE_DOC);
+
+            boolean acquired;
+            if (res.getStatusCode() == 404) {
+                acquired = writeLease(now + LEASE_MS, null);
+            } else if (res.getStatusCode() == 200) {
+                JsonObject doc = JsonParser.parseString(res.getBody()).getAsJsonObject();
+                JsonObject fields = doc.getAsJsonObject("fields");
+                String holder = fields.has("holder") ? fields.getAsJsonObject("holder").get("stringValue").getAsString()
+                        : "";
+                long expiresAt = fields.has("expiresAt")
+                        ? Long.parseLong(fields.getAsJsonObject("expiresAt").get("integerValue").getAsString())
+                        : 0;
+                currentHolder = holder;
+
+                if (holder.equals(nodeId) || expiresAt < now) {
+                    acquired = writeLease(now + LEASE_MS, doc.get("updateTime").getAsString());
+                } else {
+                    acquired = false;
+                }
+            } else {
+                return; // Firestore trouble: keep what we had until it runs out
+            }
+
+            if (acquired) {
+                leaderUntil = now + LEASE_MS;
+                currentHolder = nodeId;
+            } else {
+                leaderUntil = 0;
+                leaseUpdateTime = null;
+            }
+        } catch (java.io.IOException | RuntimeException e) {
+            System.out.println("[SCHED] Lease check failed: " + e.getMessage());
+        }
+
+        if (isLeader() != wasLeader) {
+            System.out.println(isLeader() ? "[SCHED] This node is now the job leader (" + nodeId + ")"
+                    : "[SCHED] Job leadership moved to " + currentHolder);
+        }
+    }
+
+    /**
+     * Write the lease document for this node
+     *
+     * @param updateTime Expected updateTime, or null to create a missing document
+     * @return true if written (false if another node changed it first); the new
+     *         updateTime is kept in leaseUpdateTime
+     */
+    private boolean writeLease(long expiresAt, String updateTime) throws java.io.IOException {
+        JsonObject holder = new JsonObject();
+        holder.addProperty("stringValue", nodeId);
+        JsonObject expires = new JsonObject();
+        expires.addProperty("integerValue", String.valueOf(expiresAt));
+        JsonObject fields = new JsonObject();
+        fields.add("holder", holder);
+        fields.add("expiresAt", expires);
+
+        FirestoreWrite write = FirestoreWrite.update(LEASE_COLLECTION, LEASE_DOC, fields);
+        FirestoreClient.Response res = http.commit(updateTime != null ? write.ifUpdateTime(updateTime)
+                : expiresAt > 0 ? write.ifMissing() : write);
+        if (!res.isSuccess()) {
+            return false;
+        }
+        JsonObject result = JsonParser.parseString(res.getBody()).getAsJsonObject()
+                .getAsJsonArray("writeResults").get(0).getAsJsonObject();
+        leaseUpdateTime = result.has("updateTime") ? result.get("updateTime").getAsString() : null;
+        return true;
+    }
+
+    private static ScheduledExecutorService daemonExecutor(String name) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
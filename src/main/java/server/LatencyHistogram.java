@@ -0,0 +1,136 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram - Lock-free latency histogram for one operation
+ *
+ * Durations are recorded in microseconds into log-linear buckets: every
+ * power of two is split into 8 sub-buckets, so a reported percentile is
+ * at most ~12% above the true value, from 1 us up to days. record() is a
+ * few atomic increments - no locks, no allocation - so it can wrap every
+ * remote call. Percentiles are computed from a (slightly racy) snapshot
+ * of the bucket counts when read.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * @param nanos Duration of one call
+     * @param error true if the call failed (threw, or returned a failure result
+     *              such as false or a declined decision)
+     */
+    public void record(long nanos, boolean error) {
+        long micros = Math.max(0, nanos / 1000);
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.increment();
+        totalMicros.add(micros);
+        if (error) {
+            errors.increment();
+        }
+        if (micros > maxMicros.get()) {
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n > 0 ? totalMicros.sum() / (n * 1000.0) : 0;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public double getP95Millis() {
+        return percentile(0.95);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * @param p Quantile between 0 and 1 (e.g. 0.95)
+     * @return Upper bound of the bucket holding that quantile, in ms (0 if empty)
+     */
+    public double percentile(double p) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * One-line summary, e.g. "n=120 err=0 p50=12.0 p95=40.1 p99=80.3 max=95.0 ms"
+     */
+    public String summary() {
+        return String.format("n=%d err=%d p50=%.1f p95=%.1f p99=%.1f max=%.1f ms",
+                getCount(), getErrorCount(), getP50Millis(), getP95Millis(), getP99Millis(), getMaxMillis());
+    }
+
+    // Values below SUB_BUCKETS get a bucket each; above that, bucket =
+    // (power of two, next SUB_BUCKET_BITS bits below the leading one)
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+}
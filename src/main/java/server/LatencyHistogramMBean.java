@@ -0,0 +1,24 @@
+package server;
+
+/**
+ * LatencyHistogramMBean - JMX view of one remote operation's latency
+ *
+ * Registered as bhel.hrm:type=Operation,name=<method> (see OperationMetrics)
+ * and visible in JConsole / VisualVM. Times are in milliseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
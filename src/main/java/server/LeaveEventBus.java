@@ -0,0 +1,151 @@
+package server;
+
+import model.LeaveEvent;
+
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * LeaveEventBus - Fans leave events out to remote HR listeners
+ *
+ * publish() never blocks the business call that produced the event:
+ * - Every subscriber has its own bounded queue (hrm.events.queueCapacity,
+ *   default 100); a small pool (hrm.events.dispatchThreads, default 2)
+ *   delivers each queue in order, one callback at a time per subscriber
+ * - Slow-consumer protection: a subscriber whose queue is full, or whose
+ *   callback throws (client gone), is unsubscribed so it cannot hold up
+ *   or leak memory for everyone else
+ * - Every subscription belongs to an HR session; it is dropped when that
+ *   session is closed (unsubscribeSession) or found expired on publish
+ */
+class LeaveEventBus {
+
+    private static final int QUEUE_CAPACITY = Integer.getInteger("hrm.events.queueCapacity", 100);
+    private static final int DISPATCH_THREADS = Integer.getInteger("hrm.events.dispatchThreads", 2);
+
+    private final Map<LeaveEventListener, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService dispatcher = Executors.newFixedThreadPool(DISPATCH_THREADS, r -> {
+        Thread t = new Thread(r, "leave-events-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    // Tells whether the session a subscription was made with is still open
+    private final Predicate<String> sessionOpen;
+
+    LeaveEventBus(Predicate<String> sessionOpen) {
+        this.sessionOpen = sessionOpen;
+    }
+
+    /**
+     * @param token Session token of the HR user subscribing
+     */
+    void subscribe(String token, LeaveEventListener listener) {
+        subscribers.putIfAbsent(listener, new Subscriber(token, listener));
+    }
+
+    void unsubscribe(LeaveEventListener listener) {
+        subscribers.remove(listener);
+    }
+
+    /**
+     * Drop every subscription made with this session
+     */
+    void unsubscribeSession(String token) {
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.token.equals(token)) {
+                evict(subscriber, "session closed");
+            }
+        }
+    }
+
+    /**
+     * Queue an event for every subscriber and return immediately
+     */
+    void publish(LeaveEvent event) {
+        for (Subscriber subscriber : subscribers.values()) {
+            if (!sessionOpen.test(subscriber.token)) {
+                evict(subscriber, "session closed");
+                continue;
+            }
+            if (!subscriber.queue.offer(event)) {
+                evict(subscriber, "too slow (" + QUEUE_CAPACITY + " events behind)");
+                continue;
+            }
+            subscriber.schedule();
+        }
+    }
+
+    int size() {
+        return subscribers.size();
+    }
+
+    /**
+     * One-line summary for the server health monitor
+     */
+    String getStats() {
+        return "subscribers=" + subscribers.size() + "  delivered=" + delivered.sum() + "  evicted=" + evicted.sum();
+    }
+
+    private void evict(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber.listener, subscriber)) {
+            evicted.increment();
+            subscriber.queue.clear();
+            System.out.println("[EVENTS] Listener removed: " + reason);
+        }
+    }
+
+    /**
+     * Subscriber - One remote listener and its pending events
+     */
+    private final class Subscriber {
+        final String token;
+        final LeaveEventListener listener;
+        final BlockingQueue<LeaveEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Subscriber(String token, LeaveEventListener listener) {
+            this.token = token;
+            this.listener = listener;
+        }
+
+        /**
+         * Start a drain task unless one is already running for this subscriber
+         */
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            LeaveEvent event;
+            while ((event = queue.poll()) != null) {
+                try {
+                    listener.onLeaveEvent(event);
+                    delivered.increment();
+                } catch (RemoteException | RuntimeException e) {
+                    evict(this, "unreachable (" + e.getClass().getSimpleName() + ")");
+                    return; // Stays "scheduled" so a removed subscriber is never drained again
+                }
+            }
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule(); // An event arrived after the last poll
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package server;
+
+import model.LeaveEvent;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * LeaveEventListener - Callback interface implemented by HR clients
+ *
+ * The client exports an object implementing this interface and registers it
+ * with HrmDataInterface.addLeaveListener; the server then calls it whenever
+ * a leave request is applied for, approved or rejected.
+ * Implementations must return quickly - a listener that falls too far
+ * behind is unsubscribed by the server.
+ */
+public interface LeaveEventListener extends Remote {
+
+        void onLeaveEvent(LeaveEvent event) throws RemoteException;
+}
@@ -0,0 +1,102 @@
+package server;
+
+import java.lang.management.ManagementFactory;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * OperationMetrics - Per remote operation latency histograms
+ *
+ * AuthServiceImpl runs every remote method through time()/run(), which
+ * records the duration (and whether it failed) in that operation's
+ * LatencyHistogram. A call fails when it throws, or when the optional
+ * result predicate says so (methods that report a business failure as
+ * false/null/an error message instead of an exception). Each histogram is
+ * registered on first use as the MBean bhel.hrm:type=Operation,name=<method>,
+ * and summary() feeds the periodic health monitor output.
+ */
+class OperationMetrics {
+
+    /**
+     * RemoteCall - A remote method body returning a value
+     */
+    @FunctionalInterface
+    interface RemoteCall<T> {
+        T call() throws RemoteException;
+    }
+
+    /**
+     * RemoteTask - A remote method body returning nothing
+     */
+    @FunctionalInterface
+    interface RemoteTask {
+        void run() throws RemoteException;
+    }
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    <T> T time(String operation, RemoteCall<T> call) throws RemoteException {
+        return time(operation, call, result -> false);
+    }
+
+    /**
+     * @param failed Returns true for results that count as an error
+     */
+    <T> T time(String operation, RemoteCall<T> call, Predicate<? super T> failed) throws RemoteException {
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            T result = call.call();
+            error = failed.test(result);
+            return result;
+        } finally {
+            histogram(operation).record(System.nanoTime() - start, error);
+        }
+    }
+
+    void run(String operation, RemoteTask task) throws RemoteException {
+        time(operation, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    LatencyHistogram histogram(String operation) {
+        return histograms.computeIfAbsent(operation, OperationMetrics::register);
+    }
+
+    /**
+     * Busiest operations first, one line each
+     *
+     * @param limit Max number of operations listed
+     */
+    List<String> summary(int limit) {
+        List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<>(histograms.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().getCount(), a.getValue().getCount()));
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            lines.add(entry.getKey() + ": " + entry.getValue().summary());
+        }
+        return lines;
+    }
+
+    private static LatencyHistogram register(String operation) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(histogram,
+                    new ObjectName("bhel.hrm:type=Operation,name=" + operation));
+        } catch (JMException e) {
+            // Still recorded and shown by the health monitor, just not over JMX
+            System.out.println("[METRICS] Could not register MBean for " + operation + ": " + e.getMessage());
+        }
+        return histogram;
+    }
+}
@@ -2,9 +2,9 @@ package server;
 
 import hr.HRMenu;
 import employee.EmployeeMenu;
+import model.Session;
 
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
+import java.rmi.Remote;
 import java.util.Scanner;
 
 /**
@@ -13,11 +13,20 @@ import java.util.Scanner;
  * This is the CLIENT side of the RMI system. Run this AFTER the server.
  *
  * What it does:
- * 1. Connects to the RMI Registry on localhost:1099
+ * 1. Connects to one of the RMI servers in hrm.rmi.endpoints
+ *    (default localhost:1099, see ServerCluster)
  * 2. Looks up the "AuthService" remote object
  * 3. Handles user login via Firebase Authenticationemad
  * 4. Redirects to appropriate menu based on user role (HR or Employee)
  *
+ * Login opens a server-side session that already carries the role, so one
+ * RMI call both authenticates the user and tells us which menu to show.
+ * Each login picks the next healthy server (round robin). If that server
+ * goes down, calls move to another one, but only calls that are safe to
+ * repeat are retried there (see ServerCluster). Sessions live in the memory
+ * of the server that opened them, so after a failover the session-checked
+ * calls are refused and the user has to log in again.
+ *
  * The client calls methods on authService as if they were local,
  * but they actually execute on the server.
  */
@@ -27,9 +36,10 @@ public class RMIClient {
 
     public static void main(String[] args) {
         try (Scanner scanner = new Scanner(System.in)) {
-            // Step 1: Connect to RMI Registry on the server (once at startup)
-            Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-            authService = (AuthInterface) registry.lookup("AuthService");
+            // Step 1: Connect to an RMI server of the cluster
+            ServerCluster cluster = ServerCluster.fromSettings();
+            Remote service = cluster.connect();
+            authService = (AuthInterface) service;
 
             // Handshake: Notify server of connection
             authService.printConnection();
@@ -51,23 +61,21 @@ public class RMIClient {
                 String password = scanner.nextLine();
                 System.out.println("----------------------------------------");
 
-                // Step 3: Authenticate with Firebase (via RMI call to server)
-                String uid = authService.login(email, password);
+                // Step 3: Authenticate with Firebase and open a session (one RMI call)
+                // on the next server in turn, so sessions spread across the cluster
+                service = cluster.connect();
+                authService = (AuthInterface) service;
+                Session session = authService.openSession(email, password);
 
-                if (uid == null) {
-                    System.out.println("Login Failed! Invalid email or password.");
+                if (session == null) {
+                    System.out.println("Login Failed! Invalid email or password, or no role assigned.");
                     System.out.println();
                     continue; // Go back to login prompt
                 }
 
-                // Step 4: Get user's role from Firestore (via RMI call)
-                String role = authService.getRole(uid);
-
-                if (role == null) {
-                    System.out.println("Login Failed! Role not found.");
-                    System.out.println();
-                    continue; // Go back to login prompt
-                }
+                // Step 4: Role comes with the session
+                String uid = session.uid();
+                String role = session.role();
 
                 // Login successful - show user info
                 System.out.println();
@@ -82,19 +90,21 @@ public class RMIClient {
 
                 // Step 5: Redirect to appropriate menu based on role
                 if ("hr".equalsIgnoreCase(role)) {
-                    HRMenu.show(scanner, uid, email); // HR gets HR menu
+                    HRMenu.show(scanner, service, session.token(), uid, email); // HR gets HR menu
                 } else if ("employee".equalsIgnoreCase(role)) {
-                    EmployeeMenu.show(scanner, uid, email); // Employee gets Employee menu
+                    EmployeeMenu.show(scanner, service, session.token(), uid, email); // Employee gets Employee menu
                 } else {
                     System.out.println("Unknown role: " + role);
                 }
 
-                // After logout from menu, loop continues and shows login again
+                // After logout from menu, end the session; loop shows login again
+                authService.logout(session.token());
                 System.out.println();
             }
 
-        } catch (java.rmi.RemoteException | java.rmi.NotBoundException e) {
-            System.out.println("✗ Cannot connect to server - ensure the RMI server is running on port 1099");
+        } catch (java.rmi.RemoteException e) {
+            System.out.println("✗ Cannot connect to server - ensure an RMI server is running ("
+                    + System.getProperty("hrm.rmi.endpoints", "localhost:1099") + ")");
         }
     }
 }
@@ -7,38 +7,120 @@ import java.rmi.server.UnicastRemoteObject;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
+import database.CacheSnapshot;
+import database.ChangeTracker;
+import database.EmailOutbox;
+import database.EmailService;
+import database.EmployeeDirectory;
+import database.FirestoreClient;
+import database.InvalidationBus;
+import database.LeaveBalanceCache;
+
 /**
  * RMIServer - BHEL Distributed HRM System
  *
  * Run this FIRST before the client.
  *
  * Startup sequence:
- *  1. NTP clock verification
- *  2. SNMP health monitor (background thread)
- *  3. RMI Registry + AuthService binding
- *  4. Graceful shutdown hook (Ctrl+C)
+ *  1. RMI Registry created (fails fast if the port is taken)
+ *  2. In parallel (see StagedStartup), * = critical:
+ *     NTP clock verification, warm start from the cache snapshot*, Firestore
+ *     connection*, Firebase Admin SDK*, SMTP config, HR directory preload
+ *  3. AuthService binding, once the critical phases are done
+ *  4. Background job scheduler (jobs run on the leader node only, see JobScheduler)
+ *  5. SNMP health monitor (background thread)
+ *  6. Graceful shutdown hook (Ctrl+C)
+ *
+ * Several servers can run side by side (one JVM each) as a cluster; clients
+ * list them in hrm.rmi.endpoints (see ServerCluster). Each node needs its own
+ * registry port, or its own host.
+ *
+ * Settings (system properties):
+ * - hrm.rmi.port                  Registry port (default 1099; the first program
+ *                                 argument overrides it)
+ * - java.rmi.server.hostname      Host name put in stubs, for clients on other machines
+ * - hrm.rmi.compression           Compress large RMI messages (default false)
+ * - hrm.rmi.compressionThreshold  Smallest message compressed, in bytes (default 2048)
+ * - hrm.startup.criticalTimeoutMs Max wait for critical startup phases before binding
+ *                                 (default 20000)
+ * - hrm.monitor.topOperations     Busiest operations listed by the health monitor (default 8)
+ * - hrm.changes.*                 Change tracking poll interval (see ChangeTracker)
+ * - hrm.snapshot.*                Cache snapshot file (off by default) and interval (see CacheSnapshot)
+ * - hrm.scheduler.*               Job leader lease and job intervals (see JobScheduler and
+ *                                 AuthServiceImpl.scheduleJobs)
  */
 public class RMIServer {
 
-    private static final int    PORT         = 1099;
+    private static final int    DEFAULT_PORT = 1099;
     private static final String SERVICE_NAME = "AuthService";
     private static final String NTP_SERVER   = "time.google.com";
 
+    private static final int     SNMP_TOP_OPERATIONS   = Integer.getInteger("hrm.monitor.topOperations", 8);
+    private static final boolean COMPRESSION           = Boolean.getBoolean("hrm.rmi.compression");
+    private static final int     COMPRESSION_THRESHOLD = Integer.getInteger("hrm.rmi.compressionThreshold", 2048);
+    private static final long    CRITICAL_STARTUP_TIMEOUT_MS = Long.getLong("hrm.startup.criticalTimeoutMs", 20_000);
+
+    // Registry port of this node
+    private static int port = DEFAULT_PORT;
+
     public static void main(String[] args) {
-        syncTime();
-        startSnmpMonitor();
+        port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("hrm.rmi.port", DEFAULT_PORT);
+        CacheSnapshot snapshot = CacheSnapshot.fromSettings();
 
         try {
-            Registry registry = LocateRegistry.createRegistry(PORT);
-            AuthServiceImpl service = new AuthServiceImpl();
+            Registry registry = LocateRegistry.createRegistry(port); // Fails fast if the port is taken
+            AuthServiceImpl service = COMPRESSION
+                    ? new AuthServiceImpl(new CompressingClientSocketFactory(COMPRESSION_THRESHOLD),
+                            new CompressingServerSocketFactory(COMPRESSION_THRESHOLD))
+                    : new AuthServiceImpl();
+
+            // Everything the first requests would otherwise pay for, in parallel;
+            // the service is published once the critical phases are done
+            StagedStartup startup = new StagedStartup();
+            startup.phase("ntp", false, RMIServer::syncTime);
+            startup.phase("snapshot", true, () -> {
+                if (snapshot != null) {
+                    snapshot.start();
+                }
+                return true;
+            });
+            startup.phase("firestore", true, () -> {
+                try {
+                    return FirestoreClient.getInstance().warmUp();
+                } catch (java.io.IOException e) {
+                    return false;
+                }
+            });
+            startup.phase("firebase-admin", true, service::initFirebaseAdmin);
+            startup.phase("smtp", false, () -> EmailService.getInstance().isConfigured()); // Loads on first use
+            startup.phase("hr-directory", false, () -> {
+                EmployeeDirectory.getInstance().getHrEmails();
+                return true;
+            });
+            startup.reportWhenDone();
+
+            long readyMs = startup.awaitCritical(CRITICAL_STARTUP_TIMEOUT_MS);
             registry.rebind(SERVICE_NAME, service);
+            System.out.println("[STARTUP] " + SERVICE_NAME + " published " + readyMs + "ms after start");
+
+            JobScheduler scheduler = new JobScheduler(nodeId());
+            service.scheduleJobs(scheduler);
+            scheduler.start();
+            ChangeTracker.getInstance().start(); // Keeps the caches current with other nodes' writes
+            startSnmpMonitor(service, scheduler);
 
             // Graceful shutdown on Ctrl+C
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 System.out.println("\n[SERVER] Shutting down...");
                 try {
+                    scheduler.shutdown(); // Hand the job lease to another node
+                    ChangeTracker.getInstance().shutdown();
                     registry.unbind(SERVICE_NAME);
                     UnicastRemoteObject.unexportObject(registry, true);
+                    EmailOutbox.getInstance().shutdown(10_000); // Flush queued notifications
+                    if (snapshot != null) {
+                        snapshot.shutdown(); // Warm caches for the next start
+                    }
                     System.out.println("[SERVER] Stopped cleanly.");
                 } catch (Exception e) {
                     System.out.println("[SERVER] Shutdown warning: could not cleanly unbind service");
@@ -50,7 +132,7 @@ public class RMIServer {
             Thread.currentThread().join(); // keep alive
 
         } catch (java.rmi.RemoteException e) {
-            System.out.println("[SERVER] Failed to start - ensure port " + PORT + " is not already in use");
+            System.out.println("[SERVER] Failed to start - ensure port " + port + " is not already in use");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
@@ -74,15 +156,31 @@ public class RMIServer {
         System.out.println("   BHEL HRM SYSTEM  —  RMI SERVER");
         System.out.println("==========================================");
         System.out.printf("   Host    : %s (%s)%n", host, ip);
-        System.out.printf("   Port    : %d%n", PORT);
+        System.out.printf("   Port    : %d%n", port);
         System.out.printf("   Service : %s%n", SERVICE_NAME);
+        System.out.printf("   Compress: %s%n", COMPRESSION ? "on (>= " + COMPRESSION_THRESHOLD + " bytes)" : "off");
         System.out.printf("   Started : %s%n", time);
         System.out.println("==========================================");
     }
 
+    /**
+     * Name of this node for the job lease: host:port plus a random suffix,
+     * so a restarted server never mistakes the old process's lease for its own
+     */
+    private static String nodeId() {
+        String host = "localhost";
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception ignored) {}
+        return host + ":" + port + "#" + Integer.toHexString(new java.util.Random().nextInt(0x10000));
+    }
+
     // ==================== NTP TIME VERIFICATION ====================
 
-    private static void syncTime() {
+    /**
+     * @return true if the NTP server answered
+     */
+    private static boolean syncTime() {
         System.out.println("[NTP] Connecting to " + NTP_SERVER + "...");
         try {
             java.net.InetAddress address = java.net.InetAddress.getByName(NTP_SERVER);
@@ -104,15 +202,17 @@ public class RMIServer {
                 System.out.println("[NTP] System clock is synchronised.");
             }
             client.close();
+            return true;
 
         } catch (Exception e) {
             System.out.println("[NTP] Skipped (could not reach " + NTP_SERVER + ")");
+            return false;
         }
     }
 
     // ==================== SNMP HEALTH MONITOR ====================
 
-    private static void startSnmpMonitor() {
+    private static void startSnmpMonitor(AuthServiceImpl service, JobScheduler scheduler) {
         java.lang.management.MemoryMXBean  mem     = java.lang.management.ManagementFactory.getMemoryMXBean();
         java.lang.management.RuntimeMXBean runtime = java.lang.management.ManagementFactory.getRuntimeMXBean();
 
@@ -126,6 +226,16 @@ public class RMIServer {
                     long uptime  = runtime.getUptime() / 1000;
                     System.out.printf("[SNMP] uptime=%ds  heap=%d/%dMB  threads=%d%n",
                             uptime, heapMB, maxMB, Thread.activeCount());
+                    System.out.println("[SNMP] mail: " + EmailOutbox.getInstance().getStats());
+                    System.out.println("[SNMP] events: " + service.getEventStats());
+                    System.out.println("[SNMP] invalidation: " + InvalidationBus.getInstance().getStats());
+                    System.out.println("[SNMP] leave balances: " + LeaveBalanceCache.getInstance().getStats());
+                    System.out.println("[SNMP] changes: " + ChangeTracker.getInstance().getStats());
+                    System.out.println("[SNMP] firestore: " + FirestoreClient.getInstance().getStats());
+                    System.out.println("[SNMP] scheduler: " + scheduler.getStats());
+                    for (String line : service.getOperationStats(SNMP_TOP_OPERATIONS)) {
+                        System.out.println("[SNMP] op " + line);
+                    }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
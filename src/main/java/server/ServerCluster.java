@@ -0,0 +1,225 @@
+package server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.ConnectException;
+import java.rmi.ConnectIOException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.rmi.UnknownHostException;
+import java.rmi.registry.LocateRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ServerCluster - Client-side view of several RMIServer nodes
+ *
+ * Endpoints come from hrm.rmi.endpoints, e.g. "hrm1:1099,hrm2:1099,hrm3:1100"
+ * (default "localhost:1099"). connect() returns a stub usable as both
+ * AuthInterface and HrmDataInterface that:
+ * - starts on the next healthy node in round-robin order, so consecutive
+ *   sessions are spread across nodes
+ * - moves to another node when the current one fails, and retries the call
+ *   there if that is safe: always when the call never reached the server
+ *   (connection refused etc.), and for any failure of a read-only call
+ *   (get*, list*, login, ...)
+ * A node that failed is skipped for hrm.rmi.downMs (default 10000) ms.
+ * Sessions are not moved: they exist only on the node that opened them,
+ * so a session token is not valid on the node the stub fails over to.
+ */
+public final class ServerCluster {
+
+    private static final String SERVICE_NAME = "AuthService";
+    private static final long DOWN_MS = Long.getLong("hrm.rmi.downMs", 10_000);
+
+    // Calls that can safely run twice (no writes, or writes that converge)
+    private static final Set<String> IDEMPOTENT_PREFIXES = Set.of("get", "list");
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of(
+            "login", "openSession", "logout", "printConnection", "checkAndResetLeaveBalance");
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param spec Comma separated host:port list (port defaults to 1099)
+     */
+    public ServerCluster(String spec) {
+        for (String part : spec.split(",")) {
+            String hostPort = part.trim();
+            if (hostPort.isEmpty()) {
+                continue;
+            }
+            int colon = hostPort.lastIndexOf(':');
+            endpoints.add(colon < 0
+                    ? new Endpoint(hostPort, 1099)
+                    : new Endpoint(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1))));
+        }
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("No RMI endpoints configured");
+        }
+    }
+
+    /**
+     * Cluster from the hrm.rmi.endpoints setting
+     */
+    public static ServerCluster fromSettings() {
+        return new ServerCluster(System.getProperty("hrm.rmi.endpoints", "localhost:1099"));
+    }
+
+    /**
+     * Connect to the next healthy node
+     *
+     * @return Failover stub implementing AuthInterface and HrmDataInterface
+     * @throws RemoteException if no node could be reached
+     */
+    public Remote connect() throws RemoteException {
+        Failover handler = new Failover();
+        handler.reconnect(null);
+        return (Remote) Proxy.newProxyInstance(ServerCluster.class.getClassLoader(),
+                new Class<?>[] { AuthInterface.class, HrmDataInterface.class }, handler);
+    }
+
+    /**
+     * Look up the service on healthy nodes in round-robin order, falling back
+     * to nodes marked down if none of the healthy ones answers
+     */
+    private Connection lookupNext(Endpoint failed) throws RemoteException {
+        int start = Math.floorMod(next.getAndIncrement(), endpoints.size());
+        RemoteException lastError = null;
+        for (boolean includeDown : new boolean[] { false, true }) {
+            for (int i = 0; i < endpoints.size(); i++) {
+                Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+                if (endpoint == failed && endpoints.size() > 1) {
+                    continue;
+                }
+                if (endpoint.isDown() != includeDown) {
+                    continue;
+                }
+                try {
+                    Remote stub = LocateRegistry.getRegistry(endpoint.host, endpoint.port).lookup(SERVICE_NAME);
+                    endpoint.downUntil = 0;
+                    return new Connection(endpoint, stub);
+                } catch (RemoteException e) {
+                    endpoint.markDown();
+                    lastError = e;
+                } catch (NotBoundException e) {
+                    endpoint.markDown();
+                    lastError = new RemoteException(SERVICE_NAME + " not bound on " + endpoint, e);
+                }
+            }
+        }
+        throw lastError != null ? lastError : new ConnectException("No RMI server reachable");
+    }
+
+    private static boolean isIdempotent(Method method) {
+        String name = method.getName();
+        if (IDEMPOTENT_METHODS.contains(name)) {
+            return true;
+        }
+        for (String prefix : IDEMPOTENT_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the request certainly never reached the server
+     */
+    private static boolean notDelivered(RemoteException e) {
+        return e instanceof ConnectException || e instanceof ConnectIOException
+                || e instanceof UnknownHostException || e instanceof NoSuchObjectException;
+    }
+
+    /**
+     * Failover - Invocation handler that forwards to the current node's stub
+     */
+    private final class Failover implements InvocationHandler {
+        private volatile Connection current;
+
+        void reconnect(Endpoint failed) throws RemoteException {
+            Connection connection = lookupNext(failed);
+            if (current != null) {
+                System.out.println("(Switched to server " + connection.endpoint + ")");
+            }
+            current = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "ServerCluster stub -> " + current.endpoint;
+                };
+            }
+
+            boolean idempotent = isIdempotent(method);
+            for (int attempt = 1;; attempt++) {
+                Connection connection = current;
+                try {
+                    return method.invoke(connection.stub, args);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (!(cause instanceof RemoteException remote) || cause instanceof ServerException) {
+                        throw cause; // Application error from a healthy node
+                    }
+                    connection.endpoint.markDown();
+                    boolean retry = (idempotent || notDelivered(remote)) && attempt < endpoints.size();
+                    if (!retry) {
+                        tryReconnect(connection.endpoint); // Next call goes elsewhere
+                        throw cause;
+                    }
+                    reconnect(connection.endpoint);
+                }
+            }
+        }
+
+        private void tryReconnect(Endpoint failed) {
+            try {
+                reconnect(failed);
+            } catch (RemoteException ignored) {
+                // Stay on the failed node; the next call will try again
+            }
+        }
+    }
+
+    /**
+     * Endpoint - One RMIServer node and when it may be tried again
+     */
+    private static final class Endpoint {
+        final String host;
+        final int port;
+        volatile long downUntil;
+
+        Endpoint(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        boolean isDown() {
+            return System.currentTimeMillis() < downUntil;
+        }
+
+        void markDown() {
+            downUntil = System.currentTimeMillis() + DOWN_MS;
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    private record Connection(Endpoint endpoint, Remote stub) {
+    }
+}
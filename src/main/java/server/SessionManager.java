@@ -0,0 +1,170 @@
+package server;
+
+import model.Session;
+
+import java.rmi.AccessException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * SessionManager - Server-side table of logged-in users
+ *
+ * A session is opened after a successful Firebase login and keeps the uid
+ * and role in memory, so role lookups and authorisation checks for that
+ * user never go back to Firestore.
+ * - require()/requireHr() resolve the caller of a session-checked remote
+ *   method from its token (see AuthServiceImpl)
+ * - Tokens are 256-bit random values (URL-safe Base64)
+ * - Sessions expire after hrm.session.ttlMinutes (default 480 = one shift)
+ * - Expired sessions are removed when looked up and swept on every login
+ * - Role changes and deletions made by HR are applied to open sessions
+ * - The close listener is told the token of every session that ends
+ *   (logout, expiry, employee deleted), e.g. to drop its subscriptions
+ */
+class SessionManager {
+
+    private static final long TTL_MS = Long.getLong("hrm.session.ttlMinutes", 480) * 60_000;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    // uid -> tokens of that user's sessions, so per-user lookups need no scan
+    private final Map<String, Set<String>> tokensByUid = new ConcurrentHashMap<>();
+
+    private volatile Consumer<String> closeListener = token -> {
+    };
+
+    void setCloseListener(Consumer<String> closeListener) {
+        this.closeListener = closeListener;
+    }
+
+    /**
+     * Open a session for an authenticated user
+     */
+    Session open(String uid, String email, String role) {
+        removeExpired();
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Session session = new Session(token, uid, email, role, System.currentTimeMillis() + TTL_MS);
+        sessions.put(token, session);
+        tokensByUid.computeIfAbsent(uid, u -> ConcurrentHashMap.newKeySet()).add(token);
+        return session;
+    }
+
+    /**
+     * @return The live session for this token, or null if unknown or expired
+     */
+    Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session != null && session.isExpired()) {
+            close(token);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * The caller of a session-checked remote method
+     *
+     * @throws AccessException if the token is unknown or expired
+     */
+    Session require(String token) throws AccessException {
+        Session session = get(token);
+        if (session == null) {
+            throw new AccessException("Session expired or invalid");
+        }
+        return session;
+    }
+
+    /**
+     * The caller of an HR-only remote method
+     *
+     * @throws AccessException if the token is unknown or expired, or the user is not HR
+     */
+    Session requireHr(String token) throws AccessException {
+        Session session = require(token);
+        if (!session.isHr()) {
+            throw new AccessException("HR role required");
+        }
+        return session;
+    }
+
+    /**
+     * @return Role of any live session of this user, or null if none
+     */
+    String findRole(String uid) {
+        Set<String> tokens = tokensByUid.get(uid);
+        if (tokens != null) {
+            for (String token : tokens) {
+                Session session = get(token);
+                if (session != null) {
+                    return session.role();
+                }
+            }
+        }
+        return null;
+    }
+
+    void close(String token) {
+        if (token == null) {
+            return;
+        }
+        Session session = sessions.remove(token);
+        if (session != null) {
+            tokensByUid.computeIfPresent(session.uid(), (uid, tokens) -> {
+                tokens.remove(token);
+                return tokens.isEmpty() ? null : tokens;
+            });
+            closeListener.accept(token);
+        }
+    }
+
+    /**
+     * Apply a role change to every open session of this user
+     */
+    void updateRole(String uid, String role) {
+        Set<String> tokens = tokensByUid.get(uid);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            sessions.computeIfPresent(token,
+                    (t, s) -> new Session(s.token(), s.uid(), s.email(), role, s.expiresAt()));
+        }
+    }
+
+    /**
+     * End every session of this user (e.g. the account was deleted)
+     */
+    void closeAll(String uid) {
+        Set<String> tokens = tokensByUid.remove(uid);
+        if (tokens != null) {
+            for (String token : tokens) {
+                if (sessions.remove(token) != null) {
+                    closeListener.accept(token);
+                }
+            }
+        }
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    private void removeExpired() {
+        for (Session session : sessions.values()) {
+            if (session.isExpired()) {
+                close(session.token());
+            }
+        }
+    }
+}
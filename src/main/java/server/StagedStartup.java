@@ -0,0 +1,111 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * StagedStartup - Runs the server's startup phases in parallel
+ *
+ * Each phase (NTP check, Firebase Admin, SMTP config, ...) runs on its own
+ * thread as soon as it is added. RMIServer waits only for the CRITICAL
+ * phases before publishing the service in the registry; the others finish
+ * in the background. When all phases are done a timing report is printed.
+ *
+ * A phase that fails or times out is reported, but does not stop the
+ * server: everything it prepares is also done lazily on first use.
+ */
+class StagedStartup {
+
+    private final long startedAt = System.currentTimeMillis();
+    private final List<Phase> phases = new ArrayList<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "startup-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Start a phase
+     *
+     * @param critical true if the service must not be published before it is done
+     * @param task     Returns false (or throws) if the phase failed
+     */
+    void phase(String name, boolean critical, BooleanSupplier task) {
+        Phase phase = new Phase(name, critical);
+        phase.future = CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                phase.status = task.getAsBoolean() ? "ok" : "failed";
+            } catch (RuntimeException e) {
+                phase.status = "failed (" + e.getMessage() + ")";
+            }
+            phase.millis = System.currentTimeMillis() - start;
+        }, pool);
+        phases.add(phase);
+    }
+
+    /**
+     * Wait until every critical phase is done (or the timeout passed)
+     *
+     * @return Milliseconds since startup began
+     */
+    long awaitCritical(long timeoutMs) {
+        CompletableFuture<?>[] critical = phases.stream().filter(p -> p.critical).map(p -> p.future)
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(critical).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.out.println("[STARTUP] Critical phases not done after " + timeoutMs + "ms, starting anyway");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (java.util.concurrent.ExecutionException e) {
+            // Phases catch their own errors
+        }
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    /**
+     * Print the timing report once the last phase has finished
+     */
+    void reportWhenDone() {
+        CompletableFuture.allOf(phases.stream().map(p -> p.future).toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> {
+                    printReport();
+                    pool.shutdown();
+                });
+    }
+
+    private void printReport() {
+        System.out.println("[STARTUP] ---------- phase timing ----------");
+        for (Phase phase : phases) {
+            System.out.printf("[STARTUP] %-14s %-8s %6dms  %s%n", phase.name, phase.critical ? "critical" : "",
+                    phase.millis, phase.status);
+        }
+        System.out.printf("[STARTUP] all phases done %dms after start%n", System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Phase - One startup step and its outcome
+     */
+    private static final class Phase {
+        final String name;
+        final boolean critical;
+        CompletableFuture<Void> future;
+        volatile String status = "running";
+        volatile long millis;
+
+        Phase(String name, boolean critical) {
+            this.name = name;
+            this.critical = critical;
+        }
+    }
+}